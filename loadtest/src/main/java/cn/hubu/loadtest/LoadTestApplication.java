@@ -0,0 +1,21 @@
+package cn.hubu.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 压测入口：按 db-sharding 配置启动内嵌 H2 分片，经过 DBRouterJoinPoint、DynamicMybatisPlugin、DynamicDataSource 以及连接池完整链路压测
+ * 运行：mvn -f loadtest/pom.xml spring-boot:run
+ */
+@SpringBootApplication
+@EnableConfigurationProperties(LoadTestProperties.class)
+public class LoadTestApplication {
+
+    public static void main(String[] args) {
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadTestApplication.class, args)));
+    }
+
+}
@@ -0,0 +1,116 @@
+package cn.hubu.loadtest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 压测参数，对应 loadtest.*
+ */
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+
+    /**
+     * 并发线程数
+     */
+    private int threads = 32;
+
+    /**
+     * 预热时长（秒）
+     */
+    private int warmupSeconds = 5;
+
+    /**
+     * 正式压测时长（秒）
+     */
+    private int durationSeconds = 30;
+
+    /**
+     * 压测前预先插入的数据量
+     */
+    private int preloadRows = 20000;
+
+    /**
+     * 按主键路由查询的权重
+     */
+    private int pointReadWeight = 70;
+
+    /**
+     * 路由插入的权重
+     */
+    private int insertWeight = 25;
+
+    /**
+     * 遍历所有库表聚合查询的权重
+     */
+    private int scatterWeight = 5;
+
+    /**
+     * 报告输出目录
+     */
+    private String reportDir = "target/loadtest";
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(int warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public int getPreloadRows() {
+        return preloadRows;
+    }
+
+    public void setPreloadRows(int preloadRows) {
+        this.preloadRows = preloadRows;
+    }
+
+    public int getPointReadWeight() {
+        return pointReadWeight;
+    }
+
+    public void setPointReadWeight(int pointReadWeight) {
+        this.pointReadWeight = pointReadWeight;
+    }
+
+    public int getInsertWeight() {
+        return insertWeight;
+    }
+
+    public void setInsertWeight(int insertWeight) {
+        this.insertWeight = insertWeight;
+    }
+
+    public int getScatterWeight() {
+        return scatterWeight;
+    }
+
+    public void setScatterWeight(int scatterWeight) {
+        this.scatterWeight = scatterWeight;
+    }
+
+    public String getReportDir() {
+        return reportDir;
+    }
+
+    public void setReportDir(String reportDir) {
+        this.reportDir = reportDir;
+    }
+}
@@ -0,0 +1,225 @@
+package cn.hubu.loadtest;
+
+import cn.hubu.strategy.IDBRouterStrategy;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 压测流程：建表 -> 预置数据 -> 预热 -> 正式压测 -> 输出 HdrHistogram 报告
+ */
+@Component
+public class LoadTestRunner implements CommandLineRunner {
+
+    private final Logger logger = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final String POINT_READ = "point-read";
+    private static final String INSERT = "insert";
+    private static final String SCATTER = "scatter";
+
+    /**
+     * 最大可记录 60 秒，精度 3 位有效数字，单位微秒
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final LoadTestProperties properties;
+
+    private final OrderMapper orderMapper;
+
+    private final IDBRouterStrategy dbRouterStrategy;
+
+    private final DataSource dataSource;
+
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+
+    private final LongAdder errors = new LongAdder();
+
+    private volatile boolean running;
+
+    public LoadTestRunner(LoadTestProperties properties, OrderMapper orderMapper, IDBRouterStrategy dbRouterStrategy, DataSource dataSource) {
+        this.properties = properties;
+        this.orderMapper = orderMapper;
+        this.dbRouterStrategy = dbRouterStrategy;
+        this.dataSource = dataSource;
+        recorders.put(POINT_READ, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+        recorders.put(INSERT, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+        recorders.put(SCATTER, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        createTables();
+        preload();
+
+        logger.info("预热 {} 秒，线程数 {}", properties.getWarmupSeconds(), properties.getThreads());
+        drive(properties.getWarmupSeconds());
+        // 丢弃预热期间的数据
+        snapshot();
+        errors.reset();
+
+        logger.info("正式压测 {} 秒", properties.getDurationSeconds());
+        long start = System.nanoTime();
+        drive(properties.getDurationSeconds());
+        long elapsedNanos = System.nanoTime() - start;
+
+        report(snapshot(), elapsedNanos);
+    }
+
+    /**
+     * 在每个库里建 tbCount 张物理表，DDL 不经过 Mybatis 插件，表名自己拼
+     */
+    private void createTables() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int db = 1; db <= dbRouterStrategy.dbCount(); db++) {
+            dbRouterStrategy.setDBKey(db);
+            try {
+                for (int tb = 0; tb < dbRouterStrategy.tbCount(); tb++) {
+                    jdbcTemplate.execute(String.format("create table if not exists t_order_%03d (id bigint primary key, user_id bigint not null, amount bigint not null)", tb));
+                }
+            } finally {
+                dbRouterStrategy.clear();
+            }
+        }
+        logger.info("已创建 {} 库 x {} 表", dbRouterStrategy.dbCount(), dbRouterStrategy.tbCount());
+    }
+
+    private void preload() {
+        for (int i = 0; i < properties.getPreloadRows(); i++) {
+            insert();
+        }
+        logger.info("已预置 {} 条数据", properties.getPreloadRows());
+    }
+
+    private void drive(int seconds) throws Exception {
+        running = true;
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getThreads());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < properties.getThreads(); i++) {
+            futures.add(executor.submit(this::loop));
+        }
+        TimeUnit.SECONDS.sleep(seconds);
+        running = false;
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+    }
+
+    private void loop() {
+        int totalWeight = properties.getPointReadWeight() + properties.getInsertWeight() + properties.getScatterWeight();
+        while (running) {
+            int dice = ThreadLocalRandom.current().nextInt(totalWeight);
+            String op = dice < properties.getPointReadWeight() ? POINT_READ
+                    : dice < properties.getPointReadWeight() + properties.getInsertWeight() ? INSERT : SCATTER;
+            long start = System.nanoTime();
+            try {
+                switch (op) {
+                    case POINT_READ:
+                        pointRead();
+                        break;
+                    case INSERT:
+                        insert();
+                        break;
+                    default:
+                        scatter();
+                }
+                recorders.get(op).recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+            } catch (RuntimeException e) {
+                errors.increment();
+                logger.debug("{} 失败", op, e);
+            }
+        }
+    }
+
+    private void pointRead() {
+        long id = 1 + ThreadLocalRandom.current().nextLong(Math.max(1, nextId.get()));
+        orderMapper.selectById(String.valueOf(id));
+    }
+
+    private void insert() {
+        long id = nextId.incrementAndGet();
+        orderMapper.insert(new Order(id, ThreadLocalRandom.current().nextLong(100000), ThreadLocalRandom.current().nextLong(10000)));
+    }
+
+    /**
+     * 遍历所有物理表做聚合，模拟没有路由键的查询
+     */
+    private void scatter() {
+        long amount = ThreadLocalRandom.current().nextLong(10000);
+        for (int db = 1; db <= dbRouterStrategy.dbCount(); db++) {
+            for (int tb = 0; tb < dbRouterStrategy.tbCount(); tb++) {
+                dbRouterStrategy.setDBKey(db);
+                dbRouterStrategy.setTBKey(tb);
+                try {
+                    orderMapper.countByAmount(amount);
+                } finally {
+                    dbRouterStrategy.clear();
+                }
+            }
+        }
+    }
+
+    private Map<String, Histogram> snapshot() {
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        recorders.forEach((op, recorder) -> histograms.put(op, recorder.getIntervalHistogram()));
+        return histograms;
+    }
+
+    private void report(Map<String, Histogram> histograms, long elapsedNanos) throws IOException {
+        File dir = new File(properties.getReportDir());
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("can't create report dir " + dir.getAbsolutePath());
+        }
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format("shards=%d x %d threads=%d duration=%.1fs errors=%d%n", dbRouterStrategy.dbCount(), dbRouterStrategy.tbCount(),
+                properties.getThreads(), seconds, errors.sum()));
+        summary.append(String.format("%-12s %10s %12s %10s %10s %10s %10s %10s%n", "op", "count", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "mean(ms)"));
+        long totalCount = 0;
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            totalCount += histogram.getTotalCount();
+            summary.append(String.format("%-12s %10d %12.1f %10.3f %10.3f %10.3f %10.3f %10.3f%n", entry.getKey(), histogram.getTotalCount(),
+                    histogram.getTotalCount() / seconds, histogram.getValueAtPercentile(50) / 1000D, histogram.getValueAtPercentile(99) / 1000D,
+                    histogram.getValueAtPercentile(99.9) / 1000D, histogram.getMaxValue() / 1000D, histogram.getMean() / 1000D));
+
+            // 完整的百分位分布，可以用 HdrHistogram 的 plotter 画图
+            try (PrintStream out = new PrintStream(new FileOutputStream(new File(dir, entry.getKey() + ".hgrm")), true, StandardCharsets.UTF_8.name())) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        summary.append(String.format("total %d ops, %.1f ops/s%n", totalCount, totalCount / seconds));
+
+        try (PrintStream out = new PrintStream(new FileOutputStream(new File(dir, "summary.txt")), true, StandardCharsets.UTF_8.name())) {
+            out.print(summary);
+        }
+        logger.info("压测结果（报告目录 {}）：{}{}", dir.getAbsolutePath(), System.lineSeparator(), summary);
+    }
+
+}
@@ -0,0 +1,48 @@
+package cn.hubu.loadtest;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 压测用的订单表，按 id 分库分表
+ */
+public class Order {
+
+    private Long id;
+
+    private Long userId;
+
+    private Long amount;
+
+    public Order() {
+    }
+
+    public Order(Long id, Long userId, Long amount) {
+        this.id = id;
+        this.userId = userId;
+        this.amount = amount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Long amount) {
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,33 @@
+package cn.hubu.loadtest;
+
+import cn.hubu.annotation.DBRouter;
+import cn.hubu.annotation.DBRouterStrategy;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 压测 Mapper
+ */
+@Mapper
+@DBRouterStrategy(splitTable = true)
+public interface OrderMapper {
+
+    @DBRouter(key = "id")
+    @Insert("insert into t_order (id, user_id, amount) values (#{id}, #{userId}, #{amount})")
+    void insert(Order order);
+
+    @DBRouter(key = "id")
+    @Select("select id, user_id as userId, amount from t_order where id = #{id}")
+    Order selectById(@Param("id") String id);
+
+    /**
+     * 不带 @DBRouter，调用前手动设置库表，用于遍历所有物理表
+     */
+    @Select("select count(*) from t_order where amount > #{amount}")
+    long countByAmount(@Param("amount") long amount);
+
+}
@@ -0,0 +1,59 @@
+package cn.hubu.r2dbc;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 一次路由的结果，放在 Reactor Context 中随订阅链传递，替代 JDBC 版本中的 ThreadLocal
+ */
+public final class R2dbcRoute {
+
+    /**
+     * Reactor Context 中的 key
+     */
+    public static final Class<R2dbcRoute> CONTEXT_KEY = R2dbcRoute.class;
+
+    /**
+     * 分库下标，例如 01
+     */
+    private final String dbKey;
+
+    /**
+     * 分表下标，例如 003；不分表时为 null，SQL 不做替换
+     */
+    private final String tbKey;
+
+    public R2dbcRoute(String dbKey, String tbKey) {
+        this.dbKey = dbKey;
+        this.tbKey = tbKey;
+    }
+
+    /**
+     * 当前订阅链上的路由，没有路由时为空
+     */
+    public static Mono<R2dbcRoute> current() {
+        return Mono.deferContextual(context -> Mono.justOrEmpty(context.getOrEmpty(CONTEXT_KEY)));
+    }
+
+    /**
+     * 写入 Reactor Context，配合 contextWrite 使用
+     */
+    public Context toContext() {
+        return Context.of(CONTEXT_KEY, this);
+    }
+
+    public String getDbKey() {
+        return dbKey;
+    }
+
+    public String getTbKey() {
+        return tbKey;
+    }
+
+    @Override
+    public String toString() {
+        return null == tbKey ? "db" + dbKey : "db" + dbKey + "." + tbKey;
+    }
+}
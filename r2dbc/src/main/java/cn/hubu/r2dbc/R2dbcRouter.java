@@ -0,0 +1,67 @@
+package cn.hubu.r2dbc;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.util.ShardKeyUtil;
+import reactor.util.context.Context;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description R2DBC 路由入口，直接复用 JDBC 版本的 IDBRouterStrategy
+ * 策略把结果写入 DBContextHolder，这里在同一个线程上同步取出并立即清理，路由结果只通过 Reactor Context 传递
+ * 用法：userRepository.findById(id).contextWrite(r2dbcRouter.context(id))
+ */
+public class R2dbcRouter {
+
+    private final IDBRouterStrategy dbRouterStrategy;
+
+    public R2dbcRouter(IDBRouterStrategy dbRouterStrategy) {
+        this.dbRouterStrategy = dbRouterStrategy;
+    }
+
+    /**
+     * 按路由字段分库分表
+     */
+    public Context context(Object key) {
+        return route(key, true).toContext();
+    }
+
+    /**
+     * 按路由字段只分库，SQL 中的表名不替换
+     */
+    public Context dbContext(Object key) {
+        return route(key, false).toContext();
+    }
+
+    /**
+     * 手动指定库表，库从1开始，表从0开始
+     */
+    public Context context(int dbIdx, int tbIdx) {
+        return new R2dbcRoute(ShardKeyUtil.dbKey(dbIdx), ShardKeyUtil.tbKey(tbIdx)).toContext();
+    }
+
+    /**
+     * 计算路由
+     *
+     * @param key        路由字段的值
+     * @param splitTable 是否分表
+     */
+    public R2dbcRoute route(Object key, boolean splitTable) {
+        try {
+            dbRouterStrategy.doRouter(String.valueOf(key));
+            return new R2dbcRoute(DBContextHolder.getDBKey(), splitTable ? DBContextHolder.getTBKey() : null);
+        } finally {
+            dbRouterStrategy.clear();
+        }
+    }
+
+    public int dbCount() {
+        return dbRouterStrategy.dbCount();
+    }
+
+    public int tbCount() {
+        return dbRouterStrategy.tbCount();
+    }
+
+}
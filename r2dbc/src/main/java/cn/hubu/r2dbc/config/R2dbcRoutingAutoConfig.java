@@ -0,0 +1,129 @@
+package cn.hubu.r2dbc.config;
+
+import cn.hubu.enums.RouterStrategyEnum;
+import cn.hubu.properties.CustomRouterConfig;
+import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.r2dbc.R2dbcRouter;
+import cn.hubu.r2dbc.dynamic.DynamicConnectionFactory;
+import cn.hubu.r2dbc.properties.R2dbcRouterConfig;
+import cn.hubu.r2dbc.properties.R2dbcShardConfig;
+import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.strategy.impl.DBRouterStrategyCustom;
+import cn.hubu.strategy.impl.DBRouterStrategyHashCode;
+import cn.hubu.strategy.impl.DBRouterStrategyJump;
+import cn.hubu.strategy.impl.DBRouterStrategyMod;
+import cn.hubu.strategy.impl.DBRouterStrategyMurmur;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description R2DBC 分库分表自动配置，读取 db-sharding.r2dbc.* 为每个分片创建连接池，并注册动态 ConnectionFactory
+ * 在 Spring Boot 的 R2dbcAutoConfiguration 之前执行，DatabaseClient / Repository 直接使用这里的 ConnectionFactory
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "db-sharding.r2dbc", name = "list")
+@AutoConfigureBefore(name = "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration")
+public class R2dbcRoutingAutoConfig implements EnvironmentAware {
+
+    private static final String PREFIX = "db-sharding.r2dbc";
+
+    private Binder binder;
+
+    private R2dbcRouterConfig routerConfig;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        binder = Binder.get(environment);
+        routerConfig = binder.bind(PREFIX, R2dbcRouterConfig.class).orElseGet(R2dbcRouterConfig::new);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public R2dbcRouter r2dbcRouter() {
+        return new R2dbcRouter(createStrategy());
+    }
+
+    /**
+     * 每个分片一个连接池，没有路由信息时使用默认分片
+     *
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ConnectionFactory connectionFactory() {
+        Map<String, ConnectionFactory> shards = new LinkedHashMap<>();
+        for (String dbInfo : routerConfig.getList().split(",")) {
+            dbInfo = dbInfo.trim();
+            shards.put(dbInfo, createPool(dbInfo));
+        }
+        ConnectionFactory defaultConnectionFactory = shards.get(routerConfig.getDefaultDb());
+        if (null == defaultConnectionFactory) {
+            defaultConnectionFactory = createPool(routerConfig.getDefaultDb());
+        }
+        return new DynamicConnectionFactory(shards, defaultConnectionFactory);
+    }
+
+    private ConnectionFactory createPool(String name) {
+        R2dbcShardConfig shardConfig = binder.bind(PREFIX + "." + name, R2dbcShardConfig.class)
+                .orElseThrow(() -> new IllegalStateException(PREFIX + "." + name + " is not configured"));
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(shardConfig.getUrl()).mutate();
+        if (null != shardConfig.getUsername()) {
+            options.option(ConnectionFactoryOptions.USER, shardConfig.getUsername());
+        }
+        if (null != shardConfig.getPassword()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, shardConfig.getPassword());
+        }
+        ConnectionPoolConfiguration poolConfiguration = ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name(name)
+                .initialSize(shardConfig.getInitialSize())
+                .maxSize(shardConfig.getMaxSize())
+                .maxIdleTime(Duration.ofMillis(shardConfig.getMaxIdleTimeMillis()))
+                .build();
+        return new ConnectionPool(poolConfiguration);
+    }
+
+    /**
+     * 与 JDBC 版本使用相同的路由策略，同一个路由字段在两边落到同一张物理表
+     */
+    private IDBRouterStrategy createStrategy() {
+        DBRouterConfig dbRouterConfig = new DBRouterConfig(routerConfig.getDbCount(), routerConfig.getTbCount(), null, routerConfig.getRouterStrategy());
+        dbRouterConfig.setWeights(routerConfig.getWeights());
+        String strategy = routerConfig.getRouterStrategy();
+        if (RouterStrategyEnum.MOD.getStrategy().equals(strategy)) {
+            return new DBRouterStrategyMod(dbRouterConfig);
+        }
+        if (RouterStrategyEnum.HASH.getStrategy().equals(strategy)) {
+            return new DBRouterStrategyHashCode(dbRouterConfig);
+        }
+        if (RouterStrategyEnum.MURMUR.getStrategy().equals(strategy)) {
+            return new DBRouterStrategyMurmur(dbRouterConfig);
+        }
+        if (RouterStrategyEnum.JUMP.getStrategy().equals(strategy)) {
+            return new DBRouterStrategyJump(dbRouterConfig);
+        }
+        if (RouterStrategyEnum.CUSTOM.getStrategy().equals(strategy)) {
+            // 响应式调用没有方法参数，表达式中只能使用 #key、#dbCount、#tbCount
+            CustomRouterConfig customRouterConfig = binder.bind(PREFIX + ".custom", CustomRouterConfig.class).orElseGet(CustomRouterConfig::new);
+            return new DBRouterStrategyCustom(dbRouterConfig, customRouterConfig);
+        }
+        throw new IllegalArgumentException("unknown router strategy: " + strategy);
+    }
+
+}
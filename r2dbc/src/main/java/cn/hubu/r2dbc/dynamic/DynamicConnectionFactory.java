@@ -0,0 +1,61 @@
+package cn.hubu.r2dbc.dynamic;
+
+import cn.hubu.r2dbc.R2dbcRoute;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 动态 ConnectionFactory，对应 JDBC 版本的 DynamicDataSource：
+ * 从 Reactor Context 中的 R2dbcRoute 决定使用哪个分片的连接池，分表时返回的连接会把 SQL 中的逻辑表替换为物理表
+ */
+public class DynamicConnectionFactory extends AbstractRoutingConnectionFactory implements DisposableBean {
+
+    /**
+     * db01 -> 连接池，关闭时释放
+     */
+    private final Map<String, ConnectionFactory> shards;
+
+    private final ConnectionFactory defaultConnectionFactory;
+
+    public DynamicConnectionFactory(Map<String, ConnectionFactory> shards, ConnectionFactory defaultConnectionFactory) {
+        this.shards = shards;
+        this.defaultConnectionFactory = defaultConnectionFactory;
+        setTargetConnectionFactories(shards);
+        setDefaultTargetConnectionFactory(defaultConnectionFactory);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        // 就是在yml中配置的 db01, db00 数据源
+        return R2dbcRoute.current().map(route -> "db" + route.getDbKey());
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return R2dbcRoute.current()
+                .flatMap(route -> null == route.getTbKey() ? super.create() : super.create().map(connection -> RoutingConnectionHandler.wrap(connection, route.getTbKey())))
+                .switchIfEmpty(Mono.defer(super::create));
+    }
+
+    @Override
+    public void destroy() {
+        shards.values().forEach(DynamicConnectionFactory::dispose);
+        dispose(defaultConnectionFactory);
+    }
+
+    private static void dispose(ConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof Disposable) {
+            ((Disposable) connectionFactory).dispose();
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package cn.hubu.r2dbc.dynamic;
+
+import cn.hubu.util.ShardSqlUtil;
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分表连接代理：createStatement / Batch.add 时使用与 JDBC 版本相同的规则把逻辑表替换为物理表，其它调用直接转发
+ */
+public class RoutingConnectionHandler implements InvocationHandler {
+
+    private final Object target;
+
+    private final String tbKey;
+
+    private RoutingConnectionHandler(Object target, String tbKey) {
+        this.target = target;
+        this.tbKey = tbKey;
+    }
+
+    public static Connection wrap(Connection connection, String tbKey) {
+        return (Connection) Proxy.newProxyInstance(RoutingConnectionHandler.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new RoutingConnectionHandler(connection, tbKey));
+    }
+
+    private static Batch wrap(Batch batch, String tbKey) {
+        return (Batch) Proxy.newProxyInstance(RoutingConnectionHandler.class.getClassLoader(),
+                new Class<?>[]{Batch.class}, new RoutingConnectionHandler(batch, tbKey));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        // 替换SQL表名 USER 为 USER_001
+        if (("createStatement".equals(name) || "add".equals(name)) && null != args && 1 == args.length && args[0] instanceof String) {
+            args = new Object[]{ShardSqlUtil.replaceTable((String) args[0], tbKey)};
+        }
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+        if ("createBatch".equals(name)) {
+            return wrap((Batch) result, tbKey);
+        }
+        // Batch.add 返回自身，保持代理
+        if (result == target) {
+            return proxy;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,89 @@
+package cn.hubu.r2dbc.properties;
+
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description R2DBC 分库分表配置，对应 db-sharding.r2dbc.*，各分片的连接配置见 R2dbcShardConfig
+ */
+public class R2dbcRouterConfig {
+
+    /**
+     * 分库数量
+     */
+    private int dbCount;
+
+    /**
+     * 分表数量
+     */
+    private int tbCount;
+
+    /**
+     * 分片列表，例如 db01,db02
+     */
+    private String list;
+
+    /**
+     * 默认数据源，没有路由信息时使用
+     */
+    private String defaultDb;
+
+    /**
+     * 路由策略，mod、hash、murmur、jump、custom
+     */
+    private String routerStrategy = "hash";
+
+    /**
+     * 各库的权重，db01 -> 1，没有配置的库权重为 1
+     */
+    private Map<String, Integer> weights;
+
+    public int getDbCount() {
+        return dbCount;
+    }
+
+    public void setDbCount(int dbCount) {
+        this.dbCount = dbCount;
+    }
+
+    public int getTbCount() {
+        return tbCount;
+    }
+
+    public void setTbCount(int tbCount) {
+        this.tbCount = tbCount;
+    }
+
+    public String getList() {
+        return list;
+    }
+
+    public void setList(String list) {
+        this.list = list;
+    }
+
+    public String getDefaultDb() {
+        return defaultDb;
+    }
+
+    public void setDefaultDb(String defaultDb) {
+        this.defaultDb = defaultDb;
+    }
+
+    public String getRouterStrategy() {
+        return routerStrategy;
+    }
+
+    public void setRouterStrategy(String routerStrategy) {
+        this.routerStrategy = routerStrategy;
+    }
+
+    public Map<String, Integer> getWeights() {
+        return weights;
+    }
+
+    public void setWeights(Map<String, Integer> weights) {
+        this.weights = weights;
+    }
+}
@@ -0,0 +1,81 @@
+package cn.hubu.r2dbc.properties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 单个分片的 R2DBC 连接及连接池配置，对应 db-sharding.r2dbc.db01.*
+ */
+public class R2dbcShardConfig {
+
+    /**
+     * 例如 r2dbc:mysql://127.0.0.1:3306/test_01
+     */
+    private String url;
+
+    private String username;
+
+    private String password;
+
+    /**
+     * 连接池初始连接数
+     */
+    private int initialSize = 1;
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxSize = 10;
+
+    /**
+     * 空闲连接多久后关闭（毫秒）
+     */
+    private long maxIdleTimeMillis = 1800000;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public int getInitialSize() {
+        return initialSize;
+    }
+
+    public void setInitialSize(int initialSize) {
+        this.initialSize = initialSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public long getMaxIdleTimeMillis() {
+        return maxIdleTimeMillis;
+    }
+
+    public void setMaxIdleTimeMillis(long maxIdleTimeMillis) {
+        this.maxIdleTimeMillis = maxIdleTimeMillis;
+    }
+}
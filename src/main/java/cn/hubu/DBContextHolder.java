@@ -1,5 +1,7 @@
 package cn.hubu;
 
+import cn.hubu.topology.ShardingTopology;
+
 /**
  * @description: 库表信息上下文
  * @Author: Xhy
@@ -9,6 +11,11 @@ public class DBContextHolder {
 
     private static final ThreadLocal<String> dbKey = new ThreadLocal<String>();
     private static final ThreadLocal<String> tbKey = new ThreadLocal<String>();
+    private static final ThreadLocal<ShardingTopology> topology = new ThreadLocal<ShardingTopology>();
+    /**
+     * 当前线程上正在执行的路由层数（RoutingScope 和 @DBRouter 方法），用数组避免装箱
+     */
+    private static final ThreadLocal<int[]> routingDepth = ThreadLocal.withInitial(() -> new int[1]);
 
     public static void setDBKey(String dbKeyIdx){
         dbKey.set(dbKeyIdx);
@@ -34,4 +41,38 @@ public class DBContextHolder {
         tbKey.remove();
     }
 
+    /**
+     * 当前路由调用固定使用的拓扑快照，拓扑刷新不影响已经开始的调用
+     */
+    public static void setTopology(ShardingTopology shardingTopology){
+        topology.set(shardingTopology);
+    }
+
+    public static ShardingTopology getTopology(){
+        return topology.get();
+    }
+
+    public static void clearTopology(){
+        topology.remove();
+    }
+
+    /**
+     * 是否处在外层的 RoutingScope 或者 @DBRouter 方法中；只有这时当前的路由才是需要恢复的外层路由，
+     * 否则是手写代码遗留下来的，结束后应当清除
+     */
+    public static boolean isRouting(){
+        return routingDepth.get()[0] > 0;
+    }
+
+    public static void enterRouting(){
+        routingDepth.get()[0]++;
+    }
+
+    public static void exitRouting(){
+        int[] depth = routingDepth.get();
+        if (depth[0] > 0) {
+            depth[0]--;
+        }
+    }
+
 }
@@ -1,11 +1,21 @@
 package cn.hubu;
 
 import cn.hubu.annotation.DBRouter;
+import cn.hubu.annotation.DBRouterAsync;
+import cn.hubu.annotation.DBRouterIndex;
+import cn.hubu.annotation.DBRouterIndexes;
+import cn.hubu.dynamic.DynamicDataSource;
 import cn.hubu.exception.ValueNullException;
+import cn.hubu.index.SecondaryIndexStore;
 import cn.hubu.properties.DBRouterConfig;
 import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.topology.ShardingTopology;
+import cn.hubu.write.ShardWriteCoalescer;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
@@ -15,8 +25,18 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @description: 数据路由切面，通过自定义注解的方式，拦截被切面的方法，进行数据库路由
@@ -26,15 +46,60 @@ import java.lang.reflect.Method;
 @Aspect
 public class DBRouterJoinPoint {
 
+    private final Logger logger = LoggerFactory.getLogger(DBRouterJoinPoint.class);
+
     private DBRouterConfig dbRouterConfig;
 
     private IDBRouterStrategy dbRouterStrategy;
 
+    /**
+     * 二级路由索引，key 为非分片字段时通过它找到分片字段的值
+     */
+    private SecondaryIndexStore secondaryIndexStore;
+
+    /**
+     * 用于在路由调用期间固定拓扑快照
+     */
+    private DynamicDataSource dynamicDataSource;
+
+    /**
+     * @DBRouterAsync 方法的合并写入，未开启时为 null
+     */
+    private ShardWriteCoalescer shardWriteCoalescer;
+
+    /**
+     * 用于判断方法对应的 MappedStatement 是不是查询，切面创建时 SqlSessionFactory 可能还没有初始化，使用时再获取
+     */
+    private ObjectProvider<SqlSessionFactory> sqlSessionFactory;
+
+    /**
+     * 方法 -> 是否是查询
+     */
+    private final Map<Method, Boolean> selectMethods = new ConcurrentHashMap<>();
+
     public DBRouterJoinPoint(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy) {
         this.dbRouterConfig = dbRouterConfig;
         this.dbRouterStrategy = dbRouterStrategy;
     }
 
+    public DBRouterJoinPoint(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy, SecondaryIndexStore secondaryIndexStore) {
+        this.dbRouterConfig = dbRouterConfig;
+        this.dbRouterStrategy = dbRouterStrategy;
+        this.secondaryIndexStore = secondaryIndexStore;
+    }
+
+    public void setDynamicDataSource(DynamicDataSource dynamicDataSource) {
+        this.dynamicDataSource = dynamicDataSource;
+    }
+
+    public void setShardWriteCoalescer(ShardWriteCoalescer shardWriteCoalescer) {
+        this.shardWriteCoalescer = shardWriteCoalescer;
+    }
+
+    public void setSqlSessionFactory(ObjectProvider<SqlSessionFactory> sqlSessionFactory) {
+        this.sqlSessionFactory = sqlSessionFactory;
+    }
+
     @Pointcut("@annotation(cn.hubu.annotation.DBRouter)")
     public void aopPoint() {
     }
@@ -46,9 +111,26 @@ public class DBRouterJoinPoint {
      * 3. dbRouterStrategy.doRouter(dbKeyAttr) 路由策略根据具体的路由值进行处理
      * 4. 路由处理完成后放行。 jp.proceed();
      * 5. 最后 dbRouterStrategy 需要执行 clear 因为这里用到了 ThreadLocal 需要手动清空。关于 ThreadLocal 内存泄漏介绍 https://t.zsxq.com/027QF2fae
+     * 整个过程固定在开始时的拓扑快照上，期间拓扑刷新不会让库表数量和数据源不一致；嵌套的路由调用沿用外层的快照
      */
     @Around("aopPoint() && @annotation(dbRouter)")
     public Object doRouter(ProceedingJoinPoint jp, DBRouter dbRouter) throws Throwable {
+        ShardingTopology pinned = null;
+        if (null != dynamicDataSource && null == DBContextHolder.getTopology()) {
+            pinned = dynamicDataSource.pinTopology();
+            DBContextHolder.setTopology(pinned);
+        }
+        try {
+            return route(jp, dbRouter);
+        } finally {
+            if (null != pinned) {
+                DBContextHolder.clearTopology();
+                pinned.unpin();
+            }
+        }
+    }
+
+    private Object route(ProceedingJoinPoint jp, DBRouter dbRouter) throws Throwable {
         // 拿到路由规则作用在哪个字段上 dbkey
         String dbKey = dbRouter.key();
 
@@ -60,14 +142,126 @@ public class DBRouterJoinPoint {
         dbKey = StringUtils.isNotBlank(dbKey) ? dbKey : dbRouterConfig.getRouterKey();
         // 路由属性
         String dbKeyAttr = getAttrValue(dbKey, jp.getArgs());
-        // 路由策略
-        dbRouterStrategy.doRouter(dbKeyAttr);
-        // 返回结果
+        // 二级路由索引：dbKey 是 Mapper 上 @DBRouterIndex 声明的非分片字段时，先查映射表换成分片字段的值
+        if (null != secondaryIndexStore) {
+            DBRouterIndex index = secondaryIndexStore.findIndex(jp.getSignature().getDeclaringType(), dbKey);
+            if (null != index) {
+                String routerValue = secondaryIndexStore.lookup(index, dbKeyAttr);
+                if (null == routerValue) {
+                    // 没有映射说明任何分片上都没有这条数据：查询直接返回空结果；
+                    // 写入不能假装成功，否则调用方拿到 0 / null 会以为写进去了，也不能随便挑一个分片写
+                    Method method = ((MethodSignature) jp.getSignature()).getMethod();
+                    if (!isSelect(jp.getSignature().getDeclaringTypeName(), method)) {
+                        throw new IllegalStateException(method + " cannot be routed: secondary index [" + index.table() + "] has no mapping for "
+                                + dbKey + " = " + dbKeyAttr + ", route writes by " + secondaryIndexStore.routerKey(index) + " instead");
+                    }
+                    logger.debug("二级路由索引 [{}] 没有 {} = {} 的映射，返回空结果", index.table(), dbKey, dbKeyAttr);
+                    return emptyResult(method);
+                }
+                dbKeyAttr = routerValue;
+            }
+        } else if (declaresIndex(jp.getSignature().getDeclaringType(), dbKey)) {
+            throw new IllegalStateException(jp.getSignature().getDeclaringTypeName() + " declares @DBRouterIndex(key = \"" + dbKey
+                    + "\") but db-sharding.jdbc.datasource.index-enabled is not true");
+        }
+        // 在 RoutingScope 或者外层 @DBRouter 方法中调用时，结束后恢复外层的路由；
+        // 没有外层时线程上残留的路由是别处遗留的，结束后和以前一样清除
+        boolean nested = DBContextHolder.isRouting();
+        String previousDbKey = nested ? DBContextHolder.getDBKey() : null;
+        String previousTbKey = nested ? DBContextHolder.getTBKey() : null;
+        Method method = ((MethodSignature) jp.getSignature()).getMethod();
+        DBContextHolder.enterRouting();
         try {
+            // 路由策略，表达式路由等策略需要用到方法的全部参数
+            dbRouterStrategy.doRouter(dbKeyAttr, method, jp.getArgs());
+            // 异步合并写入：按路由结果入队，由写入线程批量执行
+            if (method.isAnnotationPresent(DBRouterAsync.class)) {
+                if (null == shardWriteCoalescer) {
+                    throw new IllegalStateException(method + " is annotated with @DBRouterAsync but db-sharding.jdbc.datasource.async-write.enabled is not true");
+                }
+                // 写入线程在自己的事务中执行，既不随当前事务回滚，也看不到当前事务未提交的数据
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw new IllegalStateException(method + " is annotated with @DBRouterAsync and cannot be called inside a transaction");
+                }
+                return shardWriteCoalescer.submit(method, jp.getArgs(), DBContextHolder.getDBKey(), DBContextHolder.getTBKey());
+            }
             return jp.proceed();
         } finally {
             dbRouterStrategy.clear();
+            if (null != previousDbKey) {
+                DBContextHolder.setDBKey(previousDbKey);
+            }
+            if (null != previousTbKey) {
+                DBContextHolder.setTBKey(previousTbKey);
+            }
+            DBContextHolder.exitRouting();
+        }
+    }
+
+    /**
+     * 没有开启二级路由索引时，Mapper 上是否声明了以 key 为非分片字段的索引；没有声明任何索引的 Mapper 不会分配数组
+     */
+    private static boolean declaresIndex(Class<?> mapperType, String key) {
+        if (!mapperType.isAnnotationPresent(DBRouterIndex.class) && !mapperType.isAnnotationPresent(DBRouterIndexes.class)) {
+            return false;
+        }
+        for (DBRouterIndex index : mapperType.getAnnotationsByType(DBRouterIndex.class)) {
+            if (index.key().equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 方法对应的 MappedStatement 是否是 select；@DBRouterAsync 方法、找不到 MappedStatement 的方法都按写入处理
+     */
+    private boolean isSelect(String mapperName, Method method) {
+        if (method.isAnnotationPresent(DBRouterAsync.class)) {
+            return false;
+        }
+        return selectMethods.computeIfAbsent(method, key -> {
+            SqlSessionFactory factory = null == sqlSessionFactory ? null : sqlSessionFactory.getIfAvailable();
+            if (null == factory) {
+                return false;
+            }
+            Configuration configuration = factory.getConfiguration();
+            String statementId = mapperName + "." + key.getName();
+            return configuration.hasStatement(statementId, false)
+                    && SqlCommandType.SELECT == configuration.getMappedStatement(statementId, false).getSqlCommandType();
+        });
+    }
+
+    /**
+     * 没有匹配数据时方法的返回值：集合、Map、数组、Optional 返回空的，数字返回 0，boolean 返回 false，其它返回 null
+     */
+    private static Object emptyResult(Method method) {
+        Class<?> type = method.getReturnType();
+        if (List.class.isAssignableFrom(type) || Collection.class == type) {
+            return Collections.emptyList();
+        }
+        if (Set.class.isAssignableFrom(type)) {
+            return Collections.emptySet();
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return Collections.emptyMap();
+        }
+        if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        }
+        if (Optional.class == type) {
+            return Optional.empty();
+        }
+        if (boolean.class == type || Boolean.class == type) {
+            return false;
+        }
+        if (int.class == type || Integer.class == type) {
+            return 0;
+        }
+        if (long.class == type || Long.class == type) {
+            return 0L;
         }
+        return null;
     }
 
     /**
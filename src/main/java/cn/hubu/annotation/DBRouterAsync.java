@@ -0,0 +1,20 @@
+package cn.hubu.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 异步合并写入注解，和 @DBRouter 一起标注在 Mapper 的 insert 方法上，方法返回 CompletableFuture<Integer>（影响行数）。
+ * 调用按路由结果放入对应 (库, 表) 的队列，攒够 batchSize 条或者等待 flushMillis 后作为一个 JDBC batch 在一个事务中写入。
+ * 需要配置 db-sharding.jdbc.datasource.async-write.enabled=true
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface DBRouterAsync {
+
+    /** 每批最多多少条，小于等于 0 时使用全局配置 */
+    int batchSize() default 0;
+
+}
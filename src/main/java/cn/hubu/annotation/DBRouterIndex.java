@@ -0,0 +1,34 @@
+package cn.hubu.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 二级路由索引注解，标注在 Mapper 上：维护 非分片字段 -> 分片字段 的映射表，
+ * 之后 @DBRouter(key = "email") 这类以非分片字段为 key 的方法会先查映射表拿到分片字段的值再路由。
+ * 映射表放在默认数据源中，需要提前建好：
+ * create table user_email_idx (index_key varchar(255) primary key, router_key varchar(255) not null)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+@Repeatable(DBRouterIndexes.class)
+public @interface DBRouterIndex {
+
+    /** 非分片字段，例如 email */
+    String key();
+
+    /** 映射表名，例如 user_email_idx */
+    String table();
+
+    /** 分片字段，为空时使用全局路由字段 routerKey */
+    String routerKey() default "";
+
+    /**
+     * 一个分片字段值只对应一个非分片字段值（例如用户的 email）：保存映射时删除该分片字段值的其它映射，
+     * 修改 email 后旧 email 不再指向该用户。一对多的索引（例如 订单号 -> 用户 id）保持 false
+     */
+    boolean oneToOne() default false;
+
+}
@@ -0,0 +1,17 @@
+package cn.hubu.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 同一个 Mapper 上的多个二级路由索引
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE})
+public @interface DBRouterIndexes {
+
+    DBRouterIndex[] value();
+
+}
@@ -0,0 +1,228 @@
+package cn.hubu.cache;
+
+import cn.hubu.properties.QueryCacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片查询结果缓存。淘汰交给 Caffeine（W-TinyLFU），失效按物理表维护版本号：
+ * 写某张物理表时把它的版本号加一，读到的缓存条目只要记录的版本号与当前不一致就视为未命中，
+ * 因此失效是 O(1) 的，并且只影响被写的那张物理表。
+ * 默认按 MyBatis readOnly=false 的方式序列化保存结果，每次命中返回新的对象，调用方修改结果不会影响缓存
+ */
+public class ShardQueryCache {
+
+    private final Logger logger = LoggerFactory.getLogger(ShardQueryCache.class);
+
+    private final Cache<Object, Entry> cache;
+
+    private final boolean readOnly;
+
+    /**
+     * 物理表（db01.user_003）-> 版本号
+     */
+    private final Map<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public ShardQueryCache(QueryCacheConfig config) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getExpireAfterWriteMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        this.readOnly = config.isReadOnly();
+    }
+
+    /**
+     * 查询缓存，条目涉及的任意一张物理表被写过都算未命中
+     *
+     * @return 缓存结果的副本，未命中返回 null
+     */
+    public List<?> get(Object key) {
+        Entry entry = cache.getIfPresent(key);
+        if (null == entry || !entry.isCurrent()) {
+            misses.increment();
+            return null;
+        }
+        List<?> value;
+        if (readOnly) {
+            value = new ArrayList<>((List<?>) entry.value);
+        } else {
+            try {
+                value = deserialize((byte[]) entry.value);
+            } catch (IOException | ClassNotFoundException e) {
+                // 类被重新加载等情况，当作未命中
+                logger.warn("查询缓存反序列化失败 key：{}", key, e);
+                cache.invalidate(key);
+                misses.increment();
+                return null;
+            }
+        }
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * 查询执行前先取版本号快照，执行后连同结果一起放入缓存，期间发生的写入会让这条缓存直接失效
+     *
+     * @param tables 查询涉及的物理表
+     */
+    public long[] versions(List<String> tables) {
+        long[] versions = new long[tables.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = version(tables.get(i)).get();
+        }
+        return versions;
+    }
+
+    /**
+     * 放入查询结果；非只读缓存中结果对象没有实现 Serializable 时不缓存
+     */
+    public void put(Object key, List<String> tables, long[] versions, List<?> value) {
+        Object stored;
+        if (readOnly) {
+            stored = new ArrayList<>(value);
+        } else {
+            try {
+                stored = serialize(value);
+            } catch (NotSerializableException e) {
+                logger.debug("查询结果不能序列化，不缓存 key：{} {}", key, e.getMessage());
+                return;
+            } catch (IOException e) {
+                logger.warn("查询结果序列化失败，不缓存 key：{}", key, e);
+                return;
+            }
+        }
+        AtomicLong[] counters = new AtomicLong[tables.size()];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = version(tables.get(i));
+        }
+        cache.put(key, new Entry(counters, versions, stored));
+    }
+
+    private static byte[] serialize(List<?> value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new ArrayList<>(value));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<?> deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ContextClassLoaderObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (List<?>) in.readObject();
+        }
+    }
+
+    /**
+     * 使物理表相关的所有缓存失效
+     */
+    public void invalidate(Collection<String> tables) {
+        for (String table : tables) {
+            version(table).incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 命中率等统计信息
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hitCount", hitCount);
+        stats.put("missCount", missCount);
+        stats.put("hitRatio", 0 == total ? 0D : (double) hitCount / total);
+        stats.put("missRatio", 0 == total ? 0D : (double) missCount / total);
+        stats.put("size", cache.estimatedSize());
+        stats.put("evictionCount", cacheStats.evictionCount());
+        return stats;
+    }
+
+    private AtomicLong version(String table) {
+        return tableVersions.computeIfAbsent(table, key -> new AtomicLong());
+    }
+
+    private static final class Entry {
+
+        private final AtomicLong[] counters;
+
+        private final long[] versions;
+
+        /**
+         * 只读缓存为 List，否则为序列化后的 byte[]
+         */
+        private final Object value;
+
+        private Entry(AtomicLong[] counters, long[] versions, Object value) {
+            this.counters = counters;
+            this.versions = versions;
+            this.value = value;
+        }
+
+        private boolean isCurrent() {
+            for (int i = 0; i < counters.length; i++) {
+                if (counters[i].get() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 结果类型可能由应用的类加载器加载（例如 Spring Boot 的 fat jar、devtools）
+     */
+    private static final class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+        ContextClassLoaderObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (null != classLoader) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // 交给默认实现
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+}
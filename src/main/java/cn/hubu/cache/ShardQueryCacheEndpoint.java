@@ -0,0 +1,33 @@
+package cn.hubu.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description actuator 端点 /actuator/shardcache，查看分片查询缓存的命中、未命中、淘汰次数，DELETE 清空缓存
+ */
+@Endpoint(id = "shardcache")
+public class ShardQueryCacheEndpoint {
+
+    private final ShardQueryCache shardQueryCache;
+
+    public ShardQueryCacheEndpoint(ShardQueryCache shardQueryCache) {
+        this.shardQueryCache = shardQueryCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return shardQueryCache.stats();
+    }
+
+    @DeleteOperation
+    public void invalidateAll() {
+        shardQueryCache.invalidateAll();
+    }
+
+}
@@ -1,25 +1,54 @@
 package cn.hubu.config;
 
 import cn.hubu.DBRouterJoinPoint;
+import cn.hubu.cache.ShardQueryCache;
+import cn.hubu.cache.ShardQueryCacheEndpoint;
 import cn.hubu.dynamic.DynamicDataSource;
 import cn.hubu.dynamic.DynamicMybatisPlugin;
+import cn.hubu.dynamic.SecondaryIndexPlugin;
+import cn.hubu.dynamic.ShardQueryCachePlugin;
+import cn.hubu.dynamic.ShardScanPlugin;
+import cn.hubu.dynamic.SqlTracePlugin;
 import cn.hubu.enums.RouterStrategyEnum;
+import cn.hubu.index.SecondaryIndexStore;
+import cn.hubu.properties.AsyncWriteConfig;
+import cn.hubu.properties.CustomRouterConfig;
 import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.properties.QueryCacheConfig;
+import cn.hubu.properties.ResilienceConfig;
+import cn.hubu.properties.ShardScanConfig;
+import cn.hubu.properties.SqlTraceConfig;
+import cn.hubu.resilience.ShardResilienceRegistry;
+import cn.hubu.scan.ShardScanner;
+import cn.hubu.scope.ShardRouter;
 import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.strategy.impl.DBRouterStrategyCustom;
 import cn.hubu.strategy.impl.DBRouterStrategyHashCode;
+import cn.hubu.strategy.impl.DBRouterStrategyJump;
 import cn.hubu.strategy.impl.DBRouterStrategyMod;
+import cn.hubu.strategy.impl.DBRouterStrategyMurmur;
+import cn.hubu.topology.ShardingTopology;
+import cn.hubu.topology.ShardingTopologyFactory;
+import cn.hubu.topology.ShardingTopologyRefresher;
+import cn.hubu.trace.SqlTraceEndpoint;
+import cn.hubu.trace.SqlTraceRecorder;
 import cn.hubu.util.PropertyUtil;
+import cn.hubu.write.ShardWriteCoalescer;
 import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
 
 import javax.sql.DataSource;
 import java.util.HashMap;
@@ -33,6 +62,7 @@ import java.util.Optional;
  */
 @EnableConfigurationProperties(DBRouterConfig.class)
 @Configuration
+@ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource", name = "list")
 public class DataSourceAutoConfig implements EnvironmentAware {
 
     /**
@@ -70,6 +100,16 @@ public class DataSourceAutoConfig implements EnvironmentAware {
      */
     private String routerStrategy;
 
+    /**
+     * 各库的权重，db01 -> 1
+     */
+    private Map<String, Integer> weights;
+
+    /**
+     * 分片弹性配置：隔离舱、熔断、自适应超时
+     */
+    private ResilienceConfig resilienceConfig;
+
 
     /**
      * AOP，用于分库
@@ -80,18 +120,32 @@ public class DataSourceAutoConfig implements EnvironmentAware {
      */
     @Bean(name = "db-router-point")
     @ConditionalOnMissingBean
-    public DBRouterJoinPoint point(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy) {
-        return new DBRouterJoinPoint(dbRouterConfig, dbRouterStrategy);
+    public DBRouterJoinPoint point(DBRouterConfig dbRouterConfig, IDBRouterStrategy dbRouterStrategy, ObjectProvider<SecondaryIndexStore> secondaryIndexStore, DataSource dataSource,
+                                   ObjectProvider<ShardWriteCoalescer> shardWriteCoalescer, ObjectProvider<SqlSessionFactory> sqlSessionFactory) {
+        DBRouterJoinPoint point = new DBRouterJoinPoint(dbRouterConfig, dbRouterStrategy, secondaryIndexStore.getIfAvailable());
+        if (dataSource instanceof DynamicDataSource) {
+            point.setDynamicDataSource((DynamicDataSource) dataSource);
+        }
+        point.setShardWriteCoalescer(shardWriteCoalescer.getIfAvailable());
+        point.setSqlSessionFactory(sqlSessionFactory);
+        return point;
     }
 
     /**
      * 将DB的信息注入到spring中，供后续获取
      *
+     * @param dataSource
      * @return
      */
     @Bean
-    public DBRouterConfig dbRouterConfig() {
-        return new DBRouterConfig(dbCount, tbCount, routerKey, routerStrategy);
+    public DBRouterConfig dbRouterConfig(DataSource dataSource) {
+        DBRouterConfig dbRouterConfig = new DBRouterConfig(dbCount, tbCount, routerKey, routerStrategy);
+        dbRouterConfig.setWeights(weights);
+        // 库表数量跟随当前发布的拓扑
+        if (dataSource instanceof DynamicDataSource) {
+            dbRouterConfig.setDynamicDataSource((DynamicDataSource) dataSource);
+        }
+        return dbRouterConfig;
     }
 
     /**
@@ -115,20 +169,40 @@ public class DataSourceAutoConfig implements EnvironmentAware {
      */
     @Bean
     public DataSource dataSource() {
-        Map<Object, Object> targetDataSources = new HashMap<>();
-        for (String dbInfo : dataSourceMap.keySet()) {
-            Map<String, Object> objMap = dataSourceMap.get(dbInfo);
-            targetDataSources.put(dbInfo, new DriverManagerDataSource(objMap.get("url").toString(), objMap.get("username").toString(), objMap.get("password").toString()));
-        }
+        // 初始路由拓扑，之后可以通过 ShardingTopologyRefresher 在运行时整体替换
+        ShardingTopology topology = ShardingTopologyFactory.create(dbCount, tbCount, dataSourceMap, defaultDataSourceConfig, null);
+        Map<Object, Object> targetDataSources = new HashMap<>(topology.getDataSources());
 
         // 设置数据源
         DynamicDataSource dynamicDataSource = new DynamicDataSource();
         dynamicDataSource.setTargetDataSources(targetDataSources);
-        dynamicDataSource.setDefaultTargetDataSource(new DriverManagerDataSource(defaultDataSourceConfig.get("url").toString(), defaultDataSourceConfig.get("username").toString(), defaultDataSourceConfig.get("password").toString()));
+        dynamicDataSource.setDefaultTargetDataSource(topology.getDefaultDataSource());
+        dynamicDataSource.setTopology(topology);
+        // 开启后每个分片独立的隔离舱和熔断器，坏分片只影响自己的流量
+        if (resilienceConfig.isEnabled()) {
+            dynamicDataSource.setShardResilience(new ShardResilienceRegistry(resilienceConfig));
+        }
 
         return dynamicDataSource;
     }
 
+    /**
+     * 运行时刷新路由拓扑：EnvironmentChangeEvent、监听本地文件或者直接调用 refresh()
+     *
+     * @param dataSource
+     * @param dbRouterConfig
+     * @param environment
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ShardingTopologyRefresher shardingTopologyRefresher(DataSource dataSource, DBRouterConfig dbRouterConfig, Environment environment) {
+        String prefix = "db-sharding.jdbc.datasource.refresh.";
+        return new ShardingTopologyRefresher((DynamicDataSource) dataSource, dbRouterConfig, environment,
+                environment.getProperty(prefix + "watch-file"),
+                environment.getProperty(prefix + "drain-timeout-millis", Long.class, 30000L));
+    }
+
 
     @Bean
     @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource", name = "router-strategy", havingValue = "mod")
@@ -142,7 +216,65 @@ public class DataSourceAutoConfig implements EnvironmentAware {
         return new DBRouterStrategyHashCode(dbRouterConfig);
     }
 
+    @Bean
+    @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource", name = "router-strategy", havingValue = "murmur")
+    public IDBRouterStrategy murmurRouterStrategy(DBRouterConfig dbRouterConfig) {
+        return new DBRouterStrategyMurmur(dbRouterConfig);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource", name = "router-strategy", havingValue = "jump")
+    public IDBRouterStrategy jumpRouterStrategy(DBRouterConfig dbRouterConfig) {
+        return new DBRouterStrategyJump(dbRouterConfig);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource", name = "router-strategy", havingValue = "custom")
+    public IDBRouterStrategy customRouterStrategy(DBRouterConfig dbRouterConfig, Environment environment) {
+        CustomRouterConfig customRouterConfig = Binder.get(environment).bind("db-sharding.jdbc.datasource.custom", CustomRouterConfig.class).orElseGet(CustomRouterConfig::new);
+        return new DBRouterStrategyCustom(dbRouterConfig, customRouterConfig);
+    }
+
+
+
+    /**
+     * 全分片流式扫描
+     *
+     * @param sqlSessionFactory
+     * @param dbRouterConfig
+     * @param dataSource
+     * @param environment
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ShardScanner shardScanner(SqlSessionFactory sqlSessionFactory, DBRouterConfig dbRouterConfig, DataSource dataSource, Environment environment) {
+        ShardScanConfig shardScanConfig = Binder.get(environment).bind("db-sharding.jdbc.datasource.scan", ShardScanConfig.class).orElseGet(ShardScanConfig::new);
+        return new ShardScanner(sqlSessionFactory, dbRouterConfig, dataSource instanceof DynamicDataSource ? (DynamicDataSource) dataSource : null, shardScanConfig);
+    }
+
+    /**
+     * 编程式路由：try-with-resources 作用域，不经过切面
+     *
+     * @param dbRouterStrategy
+     * @param dataSource
+     * @return
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ShardRouter shardRouter(IDBRouterStrategy dbRouterStrategy, DataSource dataSource) {
+        return new ShardRouter(dbRouterStrategy, dataSource instanceof DynamicDataSource ? (DynamicDataSource) dataSource : null);
+    }
 
+    /**
+     * 配置插件bean,用于全分片扫描时设置游标的 fetchSize
+     *
+     * @return
+     */
+    @Bean
+    public Interceptor scanPlugin() {
+        return new ShardScanPlugin();
+    }
 
     /**
      * 配置事务
@@ -161,6 +293,145 @@ public class DataSourceAutoConfig implements EnvironmentAware {
         return transactionTemplate;
     }
 
+    /**
+     * 分片查询结果缓存，需要引入 caffeine 并配置 db-sharding.jdbc.datasource.cache.enabled=true
+     */
+    @Configuration
+    @ConditionalOnClass(name = "com.github.benmanes.caffeine.cache.Caffeine")
+    @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource.cache", name = "enabled", havingValue = "true")
+    static class QueryCacheConfiguration {
+
+        @Bean
+        public ShardQueryCache shardQueryCache(Environment environment) {
+            QueryCacheConfig queryCacheConfig = Binder.get(environment).bind("db-sharding.jdbc.datasource.cache", QueryCacheConfig.class).orElseGet(QueryCacheConfig::new);
+            return new ShardQueryCache(queryCacheConfig);
+        }
+
+        /**
+         * 配置插件bean,用于缓存路由后的查询结果
+         *
+         * @param shardQueryCache
+         * @return
+         */
+        @Bean
+        public Interceptor queryCachePlugin(ShardQueryCache shardQueryCache) {
+            return new ShardQueryCachePlugin(shardQueryCache);
+        }
+
+        /**
+         * 引入 actuator 时暴露 shardcache 端点
+         */
+        @Configuration
+        @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+        static class QueryCacheEndpointConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public ShardQueryCacheEndpoint shardQueryCacheEndpoint(ShardQueryCache shardQueryCache) {
+                return new ShardQueryCacheEndpoint(shardQueryCache);
+            }
+
+        }
+
+    }
+
+    /**
+     * 二级路由索引，需要配置 db-sharding.jdbc.datasource.index-enabled=true；映射缓存使用 caffeine，
+     * 开启后缺少 caffeine 直接启动失败，而不是悄悄不注册，否则按非分片字段路由的方法会拿原值去路由
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource", name = "index-enabled", havingValue = "true")
+    static class SecondaryIndexConfiguration {
+
+        /**
+         * 二级路由索引存储，映射表在默认数据源上
+         *
+         * @param dataSource
+         * @param dbRouterConfig
+         * @return
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public SecondaryIndexStore secondaryIndexStore(DataSource dataSource, DBRouterConfig dbRouterConfig, Environment environment) {
+            if (!ClassUtils.isPresent("com.github.benmanes.caffeine.cache.Caffeine", SecondaryIndexConfiguration.class.getClassLoader())) {
+                throw new IllegalStateException("db-sharding.jdbc.datasource.index-enabled requires com.github.ben-manes.caffeine:caffeine on the classpath");
+            }
+            String prefix = "db-sharding.jdbc.datasource.";
+            int indexCacheSize = environment.getProperty(prefix + "index-cache-size", Integer.class, 10000);
+            long indexCacheExpireMillis = environment.getProperty(prefix + "index-cache-expire-millis", Long.class, 60000L);
+            return new SecondaryIndexStore(dataSource, dbRouterConfig, indexCacheSize, indexCacheExpireMillis);
+        }
+
+        /**
+         * 配置插件bean,用于在 insert / update 后维护二级路由索引
+         *
+         * @param secondaryIndexStore
+         * @return
+         */
+        @Bean
+        public Interceptor secondaryIndexPlugin(SecondaryIndexStore secondaryIndexStore) {
+            return new SecondaryIndexPlugin(secondaryIndexStore);
+        }
+
+    }
+
+    /**
+     * @DBRouterAsync 异步合并写入，需要配置 db-sharding.jdbc.datasource.async-write.enabled=true
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource.async-write", name = "enabled", havingValue = "true")
+    static class AsyncWriteConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ShardWriteCoalescer shardWriteCoalescer(SqlSessionFactory sqlSessionFactory, TransactionTemplate transactionTemplate, Environment environment) {
+            AsyncWriteConfig asyncWriteConfig = Binder.get(environment).bind("db-sharding.jdbc.datasource.async-write", AsyncWriteConfig.class).orElseGet(AsyncWriteConfig::new);
+            return new ShardWriteCoalescer(sqlSessionFactory, transactionTemplate, asyncWriteConfig);
+        }
+
+    }
+
+    /**
+     * 分片 SQL 追踪与慢查询日志，需要配置 db-sharding.jdbc.datasource.trace.enabled=true
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "db-sharding.jdbc.datasource.trace", name = "enabled", havingValue = "true")
+    static class SqlTraceConfiguration {
+
+        @Bean
+        public SqlTraceRecorder sqlTraceRecorder(Environment environment) {
+            SqlTraceConfig sqlTraceConfig = Binder.get(environment).bind("db-sharding.jdbc.datasource.trace", SqlTraceConfig.class).orElseGet(SqlTraceConfig::new);
+            return new SqlTraceRecorder(sqlTraceConfig);
+        }
+
+        /**
+         * 配置插件bean,用于统计每个物理库表上的 SQL 耗时
+         *
+         * @param sqlTraceRecorder
+         * @return
+         */
+        @Bean
+        public Interceptor sqlTracePlugin(SqlTraceRecorder sqlTraceRecorder) {
+            return new SqlTracePlugin(sqlTraceRecorder);
+        }
+
+        /**
+         * 引入 actuator 时暴露 shardsql 端点
+         */
+        @Configuration
+        @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+        static class SqlTraceEndpointConfiguration {
+
+            @Bean
+            @ConditionalOnMissingBean
+            public SqlTraceEndpoint sqlTraceEndpoint(SqlTraceRecorder sqlTraceRecorder) {
+                return new SqlTraceEndpoint(sqlTraceRecorder);
+            }
+
+        }
+
+    }
+
     /**
      * 读取yml中的数据源信息
      *
@@ -187,6 +458,11 @@ public class DataSourceAutoConfig implements EnvironmentAware {
         String defaultData = environment.getProperty(prefix + "defaultDb");
         defaultDataSourceConfig = PropertyUtil.handle(environment, prefix + defaultData, Map.class);
 
+        // 各库的权重，硬件配置不同的库按权重分配数据
+        weights = ShardingTopologyFactory.weights(environment);
+
+        // 分片弹性配置，未配置时使用默认值（关闭）
+        resilienceConfig = Binder.get(environment).bind(prefix + "resilience", ResilienceConfig.class).orElseGet(ResilienceConfig::new);
     }
 
 }
@@ -1,8 +1,14 @@
 package cn.hubu.dynamic;
 
 import cn.hubu.DBContextHolder;
+import cn.hubu.resilience.ShardResilienceRegistry;
+import cn.hubu.topology.ShardingTopology;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
 /**
  * @description: 动态数据源获取，获取数据源时，都从这个里面进行获取
  * @Author: Xhy
@@ -10,10 +16,104 @@ import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
  */
 public class DynamicDataSource extends AbstractRoutingDataSource {
 
+    /**
+     * 分片弹性保护，未开启时为 null，直接走父类逻辑
+     */
+    private ShardResilienceRegistry shardResilience;
+
+    /**
+     * 当前的路由拓扑，刷新时整体替换；为 null 时走父类的 resolvedDataSources
+     */
+    private volatile ShardingTopology topology;
+
+    public void setShardResilience(ShardResilienceRegistry shardResilience) {
+        this.shardResilience = shardResilience;
+    }
+
+    public void setTopology(ShardingTopology topology) {
+        this.topology = topology;
+    }
+
+    public ShardingTopology getTopology() {
+        return topology;
+    }
+
+    /**
+     * 发布新的拓扑，一次赋值完成替换
+     *
+     * @return 被替换掉的拓扑
+     */
+    public synchronized ShardingTopology publish(ShardingTopology next) {
+        ShardingTopology previous = topology;
+        topology = next;
+        return previous;
+    }
+
+    /**
+     * 路由调用开始时固定当前拓扑。固定之后再确认一次拓扑没有被替换，避免旧拓扑在计数为 0 时被回收
+     */
+    public ShardingTopology pinTopology() {
+        while (true) {
+            ShardingTopology current = topology;
+            if (null == current) {
+                return null;
+            }
+            current.pin();
+            if (current == topology) {
+                return current;
+            }
+            current.unpin();
+        }
+    }
+
+    /**
+     * 当前默认数据源，不受路由影响
+     */
+    public DataSource getDefaultDataSource() {
+        ShardingTopology current = topology;
+        return null == current ? getResolvedDefaultDataSource() : current.getDefaultDataSource();
+    }
+
     @Override
     protected Object determineCurrentLookupKey() {
         // 就是在yml中配置的 db01, db00 数据源
         return "db" + DBContextHolder.getDBKey();
     }
 
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (null == shardResilience) {
+            return super.getConnection();
+        }
+        return shardResilience.getConnection(currentShard(), determineTargetDataSource());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (null == shardResilience) {
+            return super.getConnection(username, password);
+        }
+        return shardResilience.getConnection(currentShard(), determineTargetDataSource(), username, password);
+    }
+
+    /**
+     * 优先使用当前调用固定的拓扑，其次是最新的拓扑
+     */
+    @Override
+    protected DataSource determineTargetDataSource() {
+        ShardingTopology pinned = DBContextHolder.getTopology();
+        ShardingTopology current = null != pinned ? pinned : topology;
+        if (null == current) {
+            return super.determineTargetDataSource();
+        }
+        return current.resolve(determineCurrentLookupKey());
+    }
+
+    /**
+     * 当前路由到的分片名称，没有路由信息时落在默认数据源上
+     */
+    private String currentShard() {
+        return null == DBContextHolder.getDBKey() ? "default" : "db" + DBContextHolder.getDBKey();
+    }
+
 }
@@ -2,6 +2,7 @@ package cn.hubu.dynamic;
 
 import cn.hubu.DBContextHolder;
 import cn.hubu.annotation.DBRouterStrategy;
+import cn.hubu.util.ShardSqlUtil;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -14,9 +15,8 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @description: Mybatis 拦截器，通过对 SQL 语句的拦截处理，修改分表信息
@@ -26,13 +26,16 @@ import java.util.regex.Pattern;
 @Intercepts({@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})})
 public class DynamicMybatisPlugin implements Interceptor {
 
-    private Pattern pattern = Pattern.compile("(from|into|update)[\\s]{1,}(\\w{1,})", Pattern.CASE_INSENSITIVE);
-
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
         // 获取StatementHandler
         StatementHandler statementHandler = (StatementHandler) invocation.getTarget();
-        MetaObject metaObject = MetaObject.forObject(statementHandler, SystemMetaObject.DEFAULT_OBJECT_FACTORY, SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, new DefaultReflectorFactory());
+        // 还有其它 StatementHandler 插件时拿到的是代理对象，逐层剥开拿到真正的 RoutingStatementHandler
+        Object realTarget = statementHandler;
+        while (Proxy.isProxyClass(realTarget.getClass())) {
+            realTarget = SystemMetaObject.forObject(Proxy.getInvocationHandler(realTarget)).getValue("target");
+        }
+        MetaObject metaObject = MetaObject.forObject(realTarget, SystemMetaObject.DEFAULT_OBJECT_FACTORY, SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, new DefaultReflectorFactory());
         // MappedStatement 包含sql语句的元信息
         MappedStatement mappedStatement = (MappedStatement) metaObject.getValue("delegate.mappedStatement");
 
@@ -52,13 +55,7 @@ public class DynamicMybatisPlugin implements Interceptor {
         String sql = boundSql.getSql();
 
         // 替换SQL表名 USER 为 USER_001
-        Matcher matcher = pattern.matcher(sql);
-        String tableName = null;
-        if (matcher.find()) {
-            tableName = matcher.group().trim();
-        }
-        assert null != tableName;
-        String replaceSql = matcher.replaceAll(tableName + "_" + DBContextHolder.getTBKey());
+        String replaceSql = ShardSqlUtil.replaceTable(sql, DBContextHolder.getTBKey());
 
         // 通过反射修改SQL语句
         Field field = boundSql.getClass().getDeclaredField("sql");
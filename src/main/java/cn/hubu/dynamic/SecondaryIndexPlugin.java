@@ -0,0 +1,93 @@
+package cn.hubu.dynamic;
+
+import cn.hubu.annotation.DBRouterIndex;
+import cn.hubu.index.SecondaryIndexStore;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description Mybatis 拦截器，insert / update 成功后维护 Mapper 上 @DBRouterIndex 声明的二级路由索引
+ * 映射表和分片不在同一个库，这里只能尽力而为：分片写成功后再写映射，写映射失败会抛出异常但不会回滚分片
+ */
+@Intercepts({@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})})
+public class SecondaryIndexPlugin implements Interceptor {
+
+    private static final Class<?> NO_MAPPER = Void.class;
+
+    private final SecondaryIndexStore secondaryIndexStore;
+
+    /**
+     * MappedStatement id -> Mapper 类型，找不到类时为 Void.class
+     */
+    private final Map<String, Class<?>> mapperTypes = new ConcurrentHashMap<>();
+
+    public SecondaryIndexPlugin(SecondaryIndexStore secondaryIndexStore) {
+        this.secondaryIndexStore = secondaryIndexStore;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        SqlCommandType commandType = mappedStatement.getSqlCommandType();
+        if (null == parameter || (SqlCommandType.INSERT != commandType && SqlCommandType.UPDATE != commandType)) {
+            return invocation.proceed();
+        }
+        Class<?> mapperType = mapperType(mappedStatement.getId());
+        DBRouterIndex[] indexes = NO_MAPPER == mapperType ? new DBRouterIndex[0] : secondaryIndexStore.indexes(mapperType);
+        if (0 == indexes.length) {
+            return invocation.proceed();
+        }
+
+        Object result = invocation.proceed();
+        for (DBRouterIndex index : indexes) {
+            String indexValue = property(parameter, index.key());
+            String routerValue = property(parameter, secondaryIndexStore.routerKey(index));
+            // update 语句里不一定带着两个字段，缺少任意一个都不维护
+            if (StringUtils.isNotBlank(indexValue) && StringUtils.isNotBlank(routerValue)) {
+                secondaryIndexStore.save(index, indexValue, routerValue);
+            }
+        }
+        return result;
+    }
+
+    private Class<?> mapperType(String id) {
+        return mapperTypes.computeIfAbsent(id, key -> {
+            try {
+                return Class.forName(key.substring(0, key.lastIndexOf(".")));
+            } catch (ClassNotFoundException e) {
+                return NO_MAPPER;
+            }
+        });
+    }
+
+    /**
+     * 从入参中读取字段，入参可以是实体，也可以是 Mybatis 的多参数 Map
+     */
+    private String property(Object parameter, String name) {
+        try {
+            if (parameter instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) parameter;
+                Object value = map.containsKey(name) ? map.get(name) : null;
+                return null == value ? null : value.toString();
+            }
+            Object value = PropertyUtils.getProperty(parameter, name);
+            return null == value ? null : value.toString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package cn.hubu.dynamic;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.cache.ShardQueryCache;
+import cn.hubu.util.ShardSqlUtil;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description Mybatis 拦截器，对路由后的查询做结果缓存，写操作使对应物理表的缓存失效
+ * 缓存 key = MappedStatement id + 参数（Mybatis CacheKey） + 路由到的库和表，因此同一条逻辑 SQL 在不同物理表上不会串数据
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class ShardQueryCachePlugin implements Interceptor {
+
+    private final ShardQueryCache shardQueryCache;
+
+    public ShardQueryCachePlugin(ShardQueryCache shardQueryCache) {
+        this.shardQueryCache = shardQueryCache;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement mappedStatement = (MappedStatement) args[0];
+        if ("update".equals(invocation.getMethod().getName())) {
+            return doUpdate(invocation, mappedStatement, args[1]);
+        }
+        return doQuery(invocation, mappedStatement, args);
+    }
+
+    private Object doQuery(Invocation invocation, MappedStatement mappedStatement, Object[] args) throws Throwable {
+        // 只缓存路由过的查询；带 ResultHandler 的查询没有返回值；事务内可能读到未提交的数据，也不缓存
+        if (null == DBContextHolder.getDBKey() || null != args[3]
+                || !mappedStatement.isUseCache() || mappedStatement.isFlushCacheRequired()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+
+        Executor executor = (Executor) invocation.getTarget();
+        Object parameter = args[1];
+        BoundSql boundSql = 6 == args.length ? (BoundSql) args[5] : mappedStatement.getBoundSql(parameter);
+        CacheKey statementKey = 6 == args.length ? (CacheKey) args[4] : executor.createCacheKey(mappedStatement, parameter, (RowBounds) args[2], boundSql);
+        CacheKey cacheKey = new CacheKey(new Object[]{DBContextHolder.getDBKey(), DBContextHolder.getTBKey(), statementKey});
+
+        // 命中时返回的是副本，调用方修改结果不会影响缓存
+        List<?> cached = shardQueryCache.get(cacheKey);
+        if (null != cached) {
+            return cached;
+        }
+
+        List<String> tables = physicalTables(mappedStatement, boundSql.getSql());
+        long[] versions = shardQueryCache.versions(tables);
+        Object result = invocation.proceed();
+        if (result instanceof List) {
+            shardQueryCache.put(cacheKey, tables, versions, (List<?>) result);
+        }
+        return result;
+    }
+
+    private Object doUpdate(Invocation invocation, MappedStatement mappedStatement, Object parameter) throws Throwable {
+        List<String> tables = physicalTables(mappedStatement, mappedStatement.getBoundSql(parameter).getSql());
+        try {
+            return invocation.proceed();
+        } finally {
+            shardQueryCache.invalidate(tables);
+            // 事务提交前其它线程仍可能读到旧数据并放入缓存，提交后再失效一次
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        shardQueryCache.invalidate(tables);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 语句读写的所有物理表：join 和 from 逗号列表中的表也记录版本，任意一张被写都会让缓存的结果失效
+     */
+    private List<String> physicalTables(MappedStatement mappedStatement, String sql) {
+        boolean splitTable = ShardSqlUtil.isSplitTable(mappedStatement.getId());
+        List<String> tables = ShardSqlUtil.tableNames(sql);
+        for (int i = 0; i < tables.size(); i++) {
+            tables.set(i, ShardSqlUtil.physicalTable(tables.get(i), splitTable));
+        }
+        // 关联的表不会被替换为分表，读的是逻辑表
+        for (String joined : ShardSqlUtil.joinedTableNames(sql)) {
+            String table = ShardSqlUtil.physicalTable(joined, false);
+            if (!tables.contains(table)) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+}
@@ -0,0 +1,31 @@
+package cn.hubu.dynamic;
+
+import cn.hubu.scan.ShardScanner;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description Mybatis 拦截器，全分片扫描的线程上把 fetchSize 设置到 Statement 上，让驱动按批取数而不是一次读入全部结果
+ */
+@Intercepts({@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})})
+public class ShardScanPlugin implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object statement = invocation.proceed();
+        Integer fetchSize = ShardScanner.getFetchSize();
+        if (null != fetchSize && statement instanceof Statement) {
+            ((Statement) statement).setFetchSize(fetchSize);
+        }
+        return statement;
+    }
+
+}
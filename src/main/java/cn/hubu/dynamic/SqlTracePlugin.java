@@ -0,0 +1,115 @@
+package cn.hubu.dynamic;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.trace.SqlTraceRecorder;
+import cn.hubu.util.ShardSqlUtil;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description Mybatis 拦截器，按物理库表追踪 SQL 的各阶段耗时
+ * Executor.query / update：整次调用，开始时间到 prepare 之间视为获取连接的等待
+ * StatementHandler.prepare：预编译
+ * StatementHandler.query / update：执行（扣除取数）
+ * ResultSetHandler.handleResultSets：取数
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+        @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+        @Signature(type = StatementHandler.class, method = "queryCursor", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+        @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class})
+})
+public class SqlTracePlugin implements Interceptor {
+
+    private final SqlTraceRecorder sqlTraceRecorder;
+
+    public SqlTracePlugin(SqlTraceRecorder sqlTraceRecorder) {
+        this.sqlTraceRecorder = sqlTraceRecorder;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object target = invocation.getTarget();
+        if (target instanceof Executor) {
+            return traceExecutor(invocation);
+        }
+        if (target instanceof ResultSetHandler) {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                sqlTraceRecorder.fetchEnd(start);
+            }
+        }
+        if ("prepare".equals(invocation.getMethod().getName())) {
+            long start = sqlTraceRecorder.prepareStart();
+            try {
+                return invocation.proceed();
+            } finally {
+                sqlTraceRecorder.prepareEnd(start);
+            }
+        }
+        // StatementHandler.query / queryCursor / update，此时 SQL 已经被 DynamicMybatisPlugin 替换为物理表
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            sqlTraceRecorder.executeEnd(start, ((StatementHandler) target).getBoundSql().getSql());
+        }
+    }
+
+    private Object traceExecutor(Invocation invocation) throws Throwable {
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        if (!sqlTraceRecorder.begin(mappedStatement.getId())) {
+            return invocation.proceed();
+        }
+        Object result = null;
+        Throwable error = null;
+        try {
+            result = invocation.proceed();
+            return result;
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            sqlTraceRecorder.end(result, error, null == error ? null : routedTable(mappedStatement, invocation.getArgs()[1]));
+        }
+    }
+
+    /**
+     * 执行前就失败时没有改写后的 SQL，按原始 SQL 的表名和当前路由推算物理表
+     */
+    private static String routedTable(MappedStatement mappedStatement, Object parameter) {
+        try {
+            List<String> tables = ShardSqlUtil.tableNames(mappedStatement.getBoundSql(parameter).getSql());
+            if (tables.isEmpty()) {
+                return null;
+            }
+            String tbKey = DBContextHolder.getTBKey();
+            return ShardSqlUtil.isSplitTable(mappedStatement.getId()) && null != tbKey ? tables.get(0) + "_" + tbKey : tables.get(0);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+}
@@ -9,7 +9,9 @@ public enum RouterStrategyEnum {
     MOD(1, "mod"),
     HASH(2, "hash"),
     TIME(3, "time"),
-    CUSTOM(4, "custom")
+    CUSTOM(4, "custom"),
+    MURMUR(5, "murmur"),
+    JUMP(6, "jump")
     ;
 
 
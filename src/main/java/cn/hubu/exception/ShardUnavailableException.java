@@ -0,0 +1,29 @@
+package cn.hubu.exception;
+
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片不可用异常：熔断打开、隔离舱已满或获取连接失败时快速失败，携带出问题的分片名称
+ */
+public class ShardUnavailableException extends RuntimeException {
+
+    /**
+     * 出问题的分片，例如 db01
+     */
+    private final String shard;
+
+    public ShardUnavailableException(String shard, String reason) {
+        super("[" + shard + "] shard unavailable: " + reason);
+        this.shard = shard;
+    }
+
+    public ShardUnavailableException(String shard, String reason, Throwable cause) {
+        super("[" + shard + "] shard unavailable: " + reason, cause);
+        this.shard = shard;
+    }
+
+    public String getShard() {
+        return shard;
+    }
+}
@@ -0,0 +1,181 @@
+package cn.hubu.index;
+
+import cn.hubu.annotation.DBRouterIndex;
+import cn.hubu.dynamic.DynamicDataSource;
+import cn.hubu.properties.DBRouterConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 二级路由索引存储：映射表放在默认数据源中，查询前面有一层 Caffeine 本地缓存（有界、写入后过期），热点 key 基本不需要多一次查库。
+ * 其它节点修改映射后，本节点最多在过期时间内读到旧的映射
+ */
+public class SecondaryIndexStore {
+
+    private final Logger logger = LoggerFactory.getLogger(SecondaryIndexStore.class);
+
+    private static final DBRouterIndex[] NO_INDEX = new DBRouterIndex[0];
+
+    private final DataSource dataSource;
+
+    private final DBRouterConfig dbRouterConfig;
+
+    /**
+     * 映射表名 + 非分片字段值 -> 分片字段值
+     */
+    private final Cache<String, String> cache;
+
+    /**
+     * 默认数据源及其 JdbcTemplate、TransactionTemplate，拓扑刷新替换了默认数据源时重新创建
+     */
+    private volatile TargetTemplate targetTemplate;
+
+    /**
+     * Mapper -> 上面声明的索引
+     */
+    private final Map<Class<?>, DBRouterIndex[]> mapperIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheSize         缓存的最大条数
+     * @param cacheExpireMillis 缓存写入后多久过期
+     */
+    public SecondaryIndexStore(DataSource dataSource, DBRouterConfig dbRouterConfig, int cacheSize, long cacheExpireMillis) {
+        this.dataSource = dataSource;
+        this.dbRouterConfig = dbRouterConfig;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheExpireMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Mapper 上声明的所有二级索引
+     */
+    public DBRouterIndex[] indexes(Class<?> mapperType) {
+        return mapperIndexes.computeIfAbsent(mapperType, type -> {
+            DBRouterIndex[] indexes = type.getAnnotationsByType(DBRouterIndex.class);
+            return 0 == indexes.length ? NO_INDEX : indexes;
+        });
+    }
+
+    /**
+     * 找到 Mapper 上以 key 为非分片字段的索引，没有返回 null
+     */
+    public DBRouterIndex findIndex(Class<?> mapperType, String key) {
+        for (DBRouterIndex index : indexes(mapperType)) {
+            if (index.key().equals(key)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 索引对应的分片字段
+     */
+    public String routerKey(DBRouterIndex index) {
+        return StringUtils.isNotBlank(index.routerKey()) ? index.routerKey() : dbRouterConfig.getRouterKey();
+    }
+
+    /**
+     * 根据非分片字段的值查分片字段的值
+     *
+     * @return 没有映射时返回 null
+     */
+    public String lookup(DBRouterIndex index, String indexValue) {
+        String cacheKey = cacheKey(index, indexValue);
+        String cached = cache.getIfPresent(cacheKey);
+        if (null != cached) {
+            return cached;
+        }
+        List<String> values = target().jdbcTemplate.queryForList("select router_key from " + index.table() + " where index_key = ?", String.class, indexValue);
+        if (values.isEmpty()) {
+            return null;
+        }
+        String routerValue = values.get(0);
+        cache.put(cacheKey, routerValue);
+        return routerValue;
+    }
+
+    /**
+     * 写入或更新映射；oneToOne 的索引同时删除该分片字段值的其它（旧的）映射，例如用户修改 email 后旧 email 不再指向该用户。
+     * 删除旧映射和写入新映射在默认数据源的同一个事务中完成，不会出现旧映射删了新映射没写上，或者两个值同时指向一个用户；
+     * 事务提交后才更新本地缓存
+     */
+    public void save(DBRouterIndex index, String indexValue, String routerValue) {
+        TargetTemplate target = target();
+        List<String> oldValues = target.transactionTemplate.execute(status -> {
+            List<String> removed = null;
+            if (index.oneToOne()) {
+                removed = target.jdbcTemplate.queryForList("select index_key from " + index.table() + " where router_key = ? and index_key <> ?",
+                        String.class, routerValue, indexValue);
+                if (!removed.isEmpty()) {
+                    target.jdbcTemplate.update("delete from " + index.table() + " where router_key = ? and index_key <> ?", routerValue, indexValue);
+                }
+            }
+            target.jdbcTemplate.update("insert into " + index.table() + " (index_key, router_key) values (?, ?) on duplicate key update router_key = ?",
+                    indexValue, routerValue, routerValue);
+            return removed;
+        });
+        if (null != oldValues && !oldValues.isEmpty()) {
+            for (String oldValue : oldValues) {
+                cache.invalidate(cacheKey(index, oldValue));
+            }
+            logger.debug("二级路由索引 {} 删除旧映射 {} -> {}", index.table(), oldValues, routerValue);
+        }
+        cache.put(cacheKey(index, indexValue), routerValue);
+        logger.debug("二级路由索引 {} {} -> {}", index.table(), indexValue, routerValue);
+    }
+
+    private static String cacheKey(DBRouterIndex index, String indexValue) {
+        return index.table() + ":" + indexValue;
+    }
+
+    /**
+     * 映射表始终在默认数据源上，不受当前路由影响；拓扑刷新后默认数据源可能变化，默认数据源不变时复用同一组模板。
+     * 映射的事务是默认数据源自己的事务，调用方处在分片事务中时也单独提交
+     */
+    private TargetTemplate target() {
+        DataSource target = dataSource instanceof DynamicDataSource ? ((DynamicDataSource) dataSource).getDefaultDataSource()
+                : dataSource instanceof AbstractRoutingDataSource ? ((AbstractRoutingDataSource) dataSource).getResolvedDefaultDataSource() : dataSource;
+        TargetTemplate current = targetTemplate;
+        if (null == current || current.target != target) {
+            current = new TargetTemplate(target);
+            targetTemplate = current;
+        }
+        return current;
+    }
+
+    private static final class TargetTemplate {
+
+        private final DataSource target;
+
+        private final JdbcTemplate jdbcTemplate;
+
+        private final TransactionTemplate transactionTemplate;
+
+        TargetTemplate(DataSource target) {
+            this.target = target;
+            this.jdbcTemplate = new JdbcTemplate(target);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(target));
+            this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+        }
+    }
+
+}
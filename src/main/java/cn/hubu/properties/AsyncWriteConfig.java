@@ -0,0 +1,87 @@
+package cn.hubu.properties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 异步合并写入配置，对应 db-sharding.jdbc.datasource.async-write.*
+ */
+public class AsyncWriteConfig {
+
+    /**
+     * 是否开启 @DBRouterAsync
+     */
+    private boolean enabled = false;
+
+    /**
+     * 每批最多多少条，攒够后立即写入
+     */
+    private int batchSize = 200;
+
+    /**
+     * 队列中最早的一条最多等待多久写入（毫秒）
+     */
+    private long flushMillis = 10;
+
+    /**
+     * 每个 (库, 表) 队列的容量，满了之后调用方阻塞
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 队列满时调用方最多阻塞多久（毫秒），超时后返回的 CompletableFuture 以 RejectedExecutionException 结束
+     */
+    private long offerTimeoutMillis = 1000;
+
+    /**
+     * 写入线程数，同一个队列同时只有一个线程在写，保证写入顺序
+     */
+    private int flushThreads = 4;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushMillis() {
+        return flushMillis;
+    }
+
+    public void setFlushMillis(long flushMillis) {
+        this.flushMillis = flushMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getOfferTimeoutMillis() {
+        return offerTimeoutMillis;
+    }
+
+    public void setOfferTimeoutMillis(long offerTimeoutMillis) {
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    public int getFlushThreads() {
+        return flushThreads;
+    }
+
+    public void setFlushThreads(int flushThreads) {
+        this.flushThreads = flushThreads;
+    }
+}
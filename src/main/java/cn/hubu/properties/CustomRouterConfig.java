@@ -0,0 +1,40 @@
+package cn.hubu.properties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 表达式路由策略配置，对应 db-sharding.jdbc.datasource.custom.*
+ * 表达式为 SpEL，可以使用的变量：
+ *    #key       路由字段的值，整数时为 Long，其它为 String
+ *    #参数名     Mapper 方法的参数，优先取 @Param 的值，例如 #tenant.region
+ *    #p0、#p1   按位置引用方法参数
+ *    #dbCount、#tbCount 当前的库表数量
+ */
+public class CustomRouterConfig {
+
+    /**
+     * 分库表达式，结果从 0 开始，例如 #key / 1000 % 4
+     */
+    private String dbExpression;
+
+    /**
+     * 分表表达式，结果从 0 开始，例如 #tenant.region
+     */
+    private String tbExpression;
+
+    public String getDbExpression() {
+        return dbExpression;
+    }
+
+    public void setDbExpression(String dbExpression) {
+        this.dbExpression = dbExpression;
+    }
+
+    public String getTbExpression() {
+        return tbExpression;
+    }
+
+    public void setTbExpression(String tbExpression) {
+        this.tbExpression = tbExpression;
+    }
+}
@@ -1,7 +1,16 @@
 package cn.hubu.properties;
 
+import cn.hubu.DBContextHolder;
+import cn.hubu.dynamic.DynamicDataSource;
+import cn.hubu.strategy.WeightedSlots;
+import cn.hubu.topology.ShardingTopology;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * @description: 数据路由配置
  * @Author: Xhy
@@ -11,14 +20,19 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class DBRouterConfig {
 
     /**
-     * 分库数量
+     * 分库数量，没有拓扑（未使用 DynamicDataSource）时使用
+     */
+    private volatile int dbCount;
+
+    /**
+     * 分表数量，没有拓扑（未使用 DynamicDataSource）时使用
      */
-    private int dbCount;
+    private volatile int tbCount;
 
     /**
-     * 分表数量
+     * 库表数量以它当前发布的拓扑为准，拓扑刷新后立即生效，不需要再同步到这里
      */
-    private int tbCount;
+    private volatile DynamicDataSource dynamicDataSource;
 
     /**
      * 路由字段: 根据表的那个字段应用路由规则
@@ -40,6 +54,11 @@ public class DBRouterConfig {
      */
     private String routerStrategy;
 
+    /**
+     * 权重和按它预先计算好的槽位表，作为一个不可变对象整体替换，读到的权重和槽位表总是一致的
+     */
+    private final AtomicReference<Weighting> weighting = new AtomicReference<>(new Weighting(Collections.<String, Integer>emptyMap(), null));
+
     public DBRouterConfig() {
     }
 
@@ -56,8 +75,13 @@ public class DBRouterConfig {
         this.routerStrategy = routerStrategy;
     }
 
+    /**
+     * 正在执行的路由调用使用开始时固定的拓扑快照，保证刷新过程中库表数量和数据源是一致的；
+     * 没有固定时使用 DynamicDataSource 当前发布的拓扑
+     */
     public int getDbCount() {
-        return dbCount;
+        ShardingTopology topology = currentTopology();
+        return null == topology ? dbCount : topology.getDbCount();
     }
 
     public void setDbCount(int dbCount) {
@@ -65,13 +89,27 @@ public class DBRouterConfig {
     }
 
     public int getTbCount() {
-        return tbCount;
+        ShardingTopology topology = currentTopology();
+        return null == topology ? tbCount : topology.getTbCount();
     }
 
     public void setTbCount(int tbCount) {
         this.tbCount = tbCount;
     }
 
+    private ShardingTopology currentTopology() {
+        ShardingTopology topology = DBContextHolder.getTopology();
+        if (null != topology) {
+            return topology;
+        }
+        DynamicDataSource dataSource = dynamicDataSource;
+        return null == dataSource ? null : dataSource.getTopology();
+    }
+
+    public void setDynamicDataSource(DynamicDataSource dynamicDataSource) {
+        this.dynamicDataSource = dynamicDataSource;
+    }
+
     public String getRouterKey() {
         return routerKey;
     }
@@ -103,4 +141,48 @@ public class DBRouterConfig {
     public void setDefaultDb(String defaultDb) {
         this.defaultDb = defaultDb;
     }
+
+    /**
+     * 各库的权重：db01 -> 1，db02 -> 4，没有配置的库权重为 1；没有配置时为空 Map
+     */
+    public Map<String, Integer> getWeights() {
+        return weighting.get().weights;
+    }
+
+    /**
+     * 设置权重并立即计算槽位表，权重不合法时在这里抛出异常。修改权重会改变数据的落点，只在启动时设置
+     */
+    public void setWeights(Map<String, Integer> weights) {
+        Map<String, Integer> copy = null == weights ? Collections.<String, Integer>emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(weights));
+        int dbCount = getDbCount();
+        // 绑定配置时库数量可能还没有设置，留到第一次路由时计算
+        weighting.set(new Weighting(copy, dbCount > 0 ? WeightedSlots.of(dbCount, copy) : null));
+    }
+
+    /**
+     * 当前库数量对应的权重槽位表，库数量变化（拓扑刷新）后按同一份权重重新计算
+     */
+    public WeightedSlots getWeightedSlots() {
+        int dbCount = getDbCount();
+        Weighting current = weighting.get();
+        WeightedSlots slots = current.slots;
+        if (null == slots || slots.getDbCount() != dbCount) {
+            slots = WeightedSlots.of(dbCount, current.weights);
+            // 只替换读到的那一份，不会覆盖同时设置的新权重
+            weighting.compareAndSet(current, new Weighting(current.weights, slots));
+        }
+        return slots;
+    }
+
+    private static final class Weighting {
+
+        private final Map<String, Integer> weights;
+
+        private final WeightedSlots slots;
+
+        Weighting(Map<String, Integer> weights, WeightedSlots slots) {
+            this.weights = weights;
+            this.slots = slots;
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package cn.hubu.properties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片查询结果缓存配置，对应 db-sharding.jdbc.datasource.cache.*
+ */
+public class QueryCacheConfig {
+
+    /**
+     * 是否开启查询结果缓存，需要引入 caffeine
+     */
+    private boolean enabled = false;
+
+    /**
+     * 最多缓存多少条查询结果
+     */
+    private long maximumSize = 10000;
+
+    /**
+     * 写入后多久过期（毫秒）
+     */
+    private long expireAfterWriteMillis = 60000;
+
+    /**
+     * 只读缓存：为 true 时所有命中共享同一批结果对象，调用方不能修改；
+     * 默认 false，和 MyBatis 二级缓存 readOnly=false 一样序列化保存，每次命中反序列化出新的对象，结果类型需要实现 Serializable
+     */
+    private boolean readOnly = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public long getExpireAfterWriteMillis() {
+        return expireAfterWriteMillis;
+    }
+
+    public void setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+}
@@ -0,0 +1,212 @@
+package cn.hubu.properties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片弹性配置：隔离舱、熔断器以及自适应超时，对应 db-sharding.jdbc.datasource.resilience.*
+ */
+public class ResilienceConfig {
+
+    /**
+     * 是否开启分片弹性保护
+     */
+    private boolean enabled = false;
+
+    /**
+     * 隔离舱：单个分片同时持有的最大连接数
+     */
+    private int maxConcurrentCalls = 20;
+
+    /**
+     * 隔离舱已满时最多等待多久（毫秒），超时则快速失败
+     */
+    private long maxWaitMillis = 50;
+
+    /**
+     * 滑动窗口大小（按调用次数）
+     */
+    private int slidingWindowSize = 50;
+
+    /**
+     * 窗口内至少有多少次调用才开始计算失败率
+     */
+    private int minimumCalls = 20;
+
+    /**
+     * 失败率阈值（百分比），达到后熔断打开
+     */
+    private int failureRateThreshold = 50;
+
+    /**
+     * 超过该耗时（毫秒）的调用记为慢调用
+     */
+    private long slowCallThresholdMillis = 1000;
+
+    /**
+     * 慢调用比例阈值（百分比），达到后熔断打开
+     */
+    private int slowCallRateThreshold = 80;
+
+    /**
+     * 熔断打开后保持多久（毫秒）再进入半开状态
+     */
+    private long openDurationMillis = 10000;
+
+    /**
+     * 半开状态下允许通过的探测调用次数
+     */
+    private int halfOpenCalls = 5;
+
+    /**
+     * 自适应超时 = 分片 p99 * 该倍数
+     */
+    private double timeoutMultiplier = 3.0;
+
+    /**
+     * 自适应超时下限（毫秒）
+     */
+    private long minTimeoutMillis = 1000;
+
+    /**
+     * 自适应超时上限（毫秒），样本不足时也使用该值
+     */
+    private long maxTimeoutMillis = 30000;
+
+    /**
+     * 计入熔断的异常类型（包括子类，沿 cause 链查找），其它异常（主键冲突、语法错误等）按成功计
+     */
+    private List<String> failureExceptions = new ArrayList<>(Arrays.asList(
+            "java.sql.SQLTransientException",
+            "java.sql.SQLRecoverableException",
+            "java.sql.SQLNonTransientConnectionException",
+            "java.sql.SQLTimeoutException"));
+
+    /**
+     * 计入熔断的 SQLState 前缀，默认 08（连接异常）
+     */
+    private List<String> failureSqlStates = new ArrayList<>(Arrays.asList("08"));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getSlowCallThresholdMillis() {
+        return slowCallThresholdMillis;
+    }
+
+    public void setSlowCallThresholdMillis(long slowCallThresholdMillis) {
+        this.slowCallThresholdMillis = slowCallThresholdMillis;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public long getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    public void setOpenDurationMillis(long openDurationMillis) {
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public double getTimeoutMultiplier() {
+        return timeoutMultiplier;
+    }
+
+    public void setTimeoutMultiplier(double timeoutMultiplier) {
+        this.timeoutMultiplier = timeoutMultiplier;
+    }
+
+    public long getMinTimeoutMillis() {
+        return minTimeoutMillis;
+    }
+
+    public void setMinTimeoutMillis(long minTimeoutMillis) {
+        this.minTimeoutMillis = minTimeoutMillis;
+    }
+
+    public long getMaxTimeoutMillis() {
+        return maxTimeoutMillis;
+    }
+
+    public void setMaxTimeoutMillis(long maxTimeoutMillis) {
+        this.maxTimeoutMillis = maxTimeoutMillis;
+    }
+
+    public List<String> getFailureExceptions() {
+        return failureExceptions;
+    }
+
+    public void setFailureExceptions(List<String> failureExceptions) {
+        this.failureExceptions = failureExceptions;
+    }
+
+    public List<String> getFailureSqlStates() {
+        return failureSqlStates;
+    }
+
+    public void setFailureSqlStates(List<String> failureSqlStates) {
+        this.failureSqlStates = failureSqlStates;
+    }
+}
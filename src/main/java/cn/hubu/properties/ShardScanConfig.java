@@ -0,0 +1,57 @@
+package cn.hubu.properties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 全分片流式扫描配置，对应 db-sharding.jdbc.datasource.scan.*
+ */
+public class ShardScanConfig {
+
+    /**
+     * 同时扫描多少张物理表
+     */
+    private int parallelism = 4;
+
+    /**
+     * 扫描线程和消费者之间的缓冲行数，缓冲满时扫描线程阻塞
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * 游标每次从数据库取多少行，覆盖 Mapper 上的 fetchSize；MySQL 需要在连接串上加 useCursorFetch=true
+     */
+    private int fetchSize = 1000;
+
+    public ShardScanConfig() {
+    }
+
+    public ShardScanConfig(int parallelism, int queueCapacity, int fetchSize) {
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.fetchSize = fetchSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+}
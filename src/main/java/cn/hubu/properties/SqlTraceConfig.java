@@ -0,0 +1,61 @@
+package cn.hubu.properties;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片 SQL 追踪与慢查询配置，对应 db-sharding.jdbc.datasource.trace.*
+ */
+public class SqlTraceConfig {
+
+    /**
+     * 是否开启分片 SQL 追踪
+     */
+    private boolean enabled = false;
+
+    /**
+     * 采样率 0~1，只有被采样的语句才会统计分阶段耗时和判断慢查询
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * 慢查询阈值（毫秒）
+     */
+    private long slowThresholdMillis = 500;
+
+    /**
+     * 内存中保留最近多少条慢查询
+     */
+    private int slowLogCapacity = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public long getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+
+    public void setSlowThresholdMillis(long slowThresholdMillis) {
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    public int getSlowLogCapacity() {
+        return slowLogCapacity;
+    }
+
+    public void setSlowLogCapacity(int slowLogCapacity) {
+        this.slowLogCapacity = slowLogCapacity;
+    }
+}
@@ -0,0 +1,61 @@
+package cn.hubu.resilience;
+
+import cn.hubu.properties.ResilienceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 判断一次调用的异常是否说明分片不健康：只有连接类、超时类等瞬时错误计入熔断，
+ * 主键冲突、语法错误、约束失败等是请求本身的问题，分片是正常的，按成功计
+ */
+class FailureClassifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailureClassifier.class);
+
+    private final List<Class<?>> exceptionTypes = new ArrayList<>();
+
+    private final List<String> sqlStatePrefixes;
+
+    FailureClassifier(ResilienceConfig config) {
+        for (String name : config.getFailureExceptions()) {
+            try {
+                exceptionTypes.add(ClassUtils.forName(name.trim(), FailureClassifier.class.getClassLoader()));
+            } catch (ClassNotFoundException | LinkageError e) {
+                logger.warn("熔断失败异常类型 {} 不存在，已忽略", name);
+            }
+        }
+        this.sqlStatePrefixes = new ArrayList<>(config.getFailureSqlStates());
+    }
+
+    /**
+     * 沿着 cause 链查找，任意一层是配置的异常类型，或者 SQLState 以配置的前缀开头，都算失败
+     */
+    boolean isFailure(Throwable error) {
+        for (Throwable cause = error; null != cause; cause = cause.getCause()) {
+            for (Class<?> type : exceptionTypes) {
+                if (type.isInstance(cause)) {
+                    return true;
+                }
+            }
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (null != sqlState) {
+                    for (String prefix : sqlStatePrefixes) {
+                        if (sqlState.startsWith(prefix)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,172 @@
+package cn.hubu.resilience;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 连接代理：执行普通语句前设置分片的自适应超时，统计 execute* 的耗时和失败，close 时释放隔离舱；
+ * 半开状态下拿到的探测连接在 close 时结算一次，连接上有失败或慢调用算失败，否则算成功。
+ * 流式查询（设置了 fetchSize）和批量执行可能合理地运行很久，不设置自适应超时；调用方自己设置的超时不会被覆盖
+ */
+class ResilientConnectionHandler implements InvocationHandler {
+
+    private final Connection target;
+
+    private final ShardResilience resilience;
+
+    /**
+     * 半开探测编号，不是探测连接时为 ShardResilience.NO_PROBE
+     */
+    private final int probe;
+
+    private Connection proxy;
+
+    private boolean closed;
+
+    /**
+     * 连接上是否有过失败或慢调用，语句可能在其它线程上执行，用 volatile
+     */
+    private volatile boolean unhealthy;
+
+    private ResilientConnectionHandler(Connection target, ShardResilience resilience, int probe) {
+        this.target = target;
+        this.resilience = resilience;
+        this.probe = probe;
+    }
+
+    static Connection wrap(Connection target, ShardResilience resilience, int probe) {
+        ResilientConnectionHandler handler = new ResilientConnectionHandler(target, resilience, probe);
+        handler.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+        return handler.proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        // 代理可能作为连接池、事务同步的 Map key，按代理对象本身比较
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        }
+        if ("toString".equals(name)) {
+            return "Resilient[" + resilience.getShard() + "] " + target;
+        }
+        if ("close".equals(name)) {
+            if (closed) {
+                return null;
+            }
+            closed = true;
+            try {
+                target.close();
+            } finally {
+                resilience.release();
+                if (ShardResilience.NO_PROBE != probe) {
+                    resilience.settleProbe(probe, !unhealthy);
+                }
+            }
+            return null;
+        }
+        if ("isClosed".equals(name) && closed) {
+            return true;
+        }
+        if ("unwrap".equals(name) || "isWrapperFor".equals(name)) {
+            return invokeTarget(target, method, args);
+        }
+
+        Object result = invokeTarget(target, method, args);
+        if (result instanceof Statement) {
+            return wrapStatement((Statement) result);
+        }
+        return result;
+    }
+
+    private Object wrapStatement(Statement statement) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new StatementHandler(statement));
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Statement 代理，关心 execute 开头的方法，以及调用方设置的 fetchSize 和超时
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+
+        /**
+         * 调用方设置过 fetchSize（流式读取）
+         */
+        private boolean streaming;
+
+        /**
+         * 调用方设置过超时
+         */
+        private boolean timeoutSet;
+
+        StatementHandler(Statement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(name)) {
+                return "Resilient[" + resilience.getShard() + "] " + statement;
+            }
+            if ("getConnection".equals(name)) {
+                return ResilientConnectionHandler.this.proxy;
+            }
+            if ("setFetchSize".equals(name)) {
+                streaming = 0 != (Integer) args[0];
+            } else if ("setQueryTimeout".equals(name)) {
+                timeoutSet = 0 != (Integer) args[0];
+            }
+            if (!name.startsWith("execute")) {
+                return invokeTarget(statement, method, args);
+            }
+            if (!streaming && !timeoutSet && !name.startsWith("executeBatch") && !name.startsWith("executeLargeBatch")) {
+                statement.setQueryTimeout(resilience.queryTimeoutSeconds());
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(statement, method, args);
+            } catch (Throwable e) {
+                // 只有连接、超时类异常说明分片不健康，请求本身的错误（主键冲突等）按成功计
+                if (!resilience.onCall(System.nanoTime() - start, resilience.isFailure(e))) {
+                    unhealthy = true;
+                }
+                throw e;
+            }
+            if (!resilience.onCall(System.nanoTime() - start, false)) {
+                unhealthy = true;
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,289 @@
+package cn.hubu.resilience;
+
+import cn.hubu.exception.ShardUnavailableException;
+import cn.hubu.properties.ResilienceConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 单个分片的弹性状态：隔离舱（信号量）、熔断器（按调用次数的滑动窗口）以及基于 p99 的自适应超时
+ */
+public class ShardResilience {
+
+    private final Logger logger = LoggerFactory.getLogger(ShardResilience.class);
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte SLOW = 2;
+
+    /**
+     * acquire 的返回值：本次不是半开探测
+     */
+    public static final int NO_PROBE = -1;
+
+    /**
+     * p99 最多每隔多久重新计算一次
+     */
+    private static final long TIMEOUT_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String shard;
+
+    private final ResilienceConfig config;
+
+    private final Semaphore bulkhead;
+
+    private final long slowCallThresholdNanos;
+
+    private final FailureClassifier failureClassifier;
+
+    // ---------------- 熔断器，以下字段都在 this 锁内读写 ----------------
+    private final byte[] outcomes;
+    private int outcomeCursor;
+    private int outcomeCount;
+    private int failureCount;
+    private int slowCount;
+    private int halfOpenRemaining;
+    private int halfOpenSucceeded;
+    /**
+     * 每次进入半开状态加 1，上一轮半开拿到的探测连接在本轮归还时不再计数
+     */
+    private int halfOpenGeneration;
+    private long openedAt;
+    private volatile State state = State.CLOSED;
+
+    // ---------------- 自适应超时，以下字段都在 latencies 锁内读写 ----------------
+    private final long[] latencies;
+    private int latencyCursor;
+    private int latencyCount;
+    private long timeoutComputedAt;
+    private volatile int queryTimeoutSeconds;
+
+    public ShardResilience(String shard, ResilienceConfig config) {
+        this.shard = shard;
+        this.config = config;
+        this.bulkhead = new Semaphore(config.getMaxConcurrentCalls(), true);
+        this.slowCallThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowCallThresholdMillis());
+        this.failureClassifier = new FailureClassifier(config);
+        this.outcomes = new byte[config.getSlidingWindowSize()];
+        // 每个分片保留最近 256 次调用耗时用于估算 p99
+        this.latencies = new long[256];
+        this.queryTimeoutSeconds = toSeconds(config.getMaxTimeoutMillis());
+    }
+
+    /**
+     * 获取连接前调用：熔断打开或隔离舱已满时直接抛出 ShardUnavailableException，不让线程堆积在坏分片上
+     *
+     * @return 半开状态下占用的探测名额（本轮半开的编号），连接关闭时必须通过 settleProbe 结算；不是探测连接时返回 NO_PROBE
+     */
+    public int acquire() {
+        int probe = tryPass();
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(config.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            if (NO_PROBE != probe) {
+                returnProbe(probe);
+            }
+            throw new ShardUnavailableException(shard, "bulkhead is full (" + config.getMaxConcurrentCalls() + " concurrent calls)");
+        }
+        return probe;
+    }
+
+    /**
+     * 连接归还时调用，释放隔离舱
+     */
+    public void release() {
+        bulkhead.release();
+    }
+
+    /**
+     * 记录一次调用结果
+     *
+     * @param elapsedNanos 耗时
+     * @param failed       是否失败
+     * @return 这次调用是否正常（没有失败也不慢），探测连接据此决定关闭时的结算结果
+     */
+    public boolean onCall(long elapsedNanos, boolean failed) {
+        byte outcome = failed ? FAILURE : (elapsedNanos >= slowCallThresholdNanos ? SLOW : SUCCESS);
+        recordOutcome(outcome);
+        if (!failed) {
+            recordLatency(elapsedNanos);
+        }
+        return SUCCESS == outcome;
+    }
+
+    /**
+     * 异常是否说明分片不健康（连接、超时等瞬时错误），只有这类异常计入熔断，其它异常按成功计
+     */
+    public boolean isFailure(Throwable error) {
+        return failureClassifier.isFailure(error);
+    }
+
+    /**
+     * 探测连接关闭时结算一次：连接上所有调用都正常（包括没有执行任何语句）算成功，否则重新打开熔断；
+     * 一个探测连接不管执行了多少条语句都只计一次
+     *
+     * @param probe   acquire 返回的探测编号
+     * @param success 是否成功
+     */
+    public synchronized void settleProbe(int probe, boolean success) {
+        if (State.HALF_OPEN != state || probe != halfOpenGeneration) {
+            return;
+        }
+        if (!success) {
+            transitionToOpen("half-open probe failed");
+        } else if (++halfOpenSucceeded >= config.getHalfOpenCalls()) {
+            state = State.CLOSED;
+            resetWindow();
+            logger.info("分片 {} 熔断关闭", shard);
+        }
+    }
+
+    /**
+     * 当前分片建议的查询超时（秒），由 p99 * timeoutMultiplier 推导，并限定在 [minTimeoutMillis, maxTimeoutMillis] 内
+     */
+    public int queryTimeoutSeconds() {
+        long now = System.nanoTime();
+        synchronized (latencies) {
+            if (now - timeoutComputedAt >= TIMEOUT_REFRESH_NANOS) {
+                timeoutComputedAt = now;
+                queryTimeoutSeconds = computeQueryTimeoutSeconds();
+            }
+        }
+        return queryTimeoutSeconds;
+    }
+
+    public String getShard() {
+        return shard;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getAvailablePermits() {
+        return bulkhead.availablePermits();
+    }
+
+    /**
+     * 熔断判断，返回本次占用的半开探测名额，没有占用时返回 NO_PROBE
+     */
+    private synchronized int tryPass() {
+        if (State.OPEN == state) {
+            if (System.currentTimeMillis() - openedAt < config.getOpenDurationMillis()) {
+                throw new ShardUnavailableException(shard, "circuit breaker is open");
+            }
+            state = State.HALF_OPEN;
+            halfOpenRemaining = config.getHalfOpenCalls();
+            halfOpenSucceeded = 0;
+            // 编号从 0 开始，不会与 NO_PROBE 冲突
+            halfOpenGeneration = (halfOpenGeneration + 1) & Integer.MAX_VALUE;
+            logger.info("分片 {} 熔断进入半开状态", shard);
+        }
+        if (State.HALF_OPEN == state) {
+            if (halfOpenRemaining <= 0) {
+                throw new ShardUnavailableException(shard, "circuit breaker is half-open, probe calls exhausted");
+            }
+            halfOpenRemaining--;
+            return halfOpenGeneration;
+        }
+        return NO_PROBE;
+    }
+
+    private synchronized void returnProbe(int probe) {
+        if (State.HALF_OPEN == state && probe == halfOpenGeneration) {
+            halfOpenRemaining++;
+        }
+    }
+
+    private synchronized void recordOutcome(byte outcome) {
+        if (State.CLOSED != state) {
+            // 半开状态由探测连接关闭时结算；熔断打开前已经拿到连接的调用，结果不再计入窗口
+            return;
+        }
+
+        if (outcomeCount == outcomes.length) {
+            byte evicted = outcomes[outcomeCursor];
+            if (FAILURE == evicted) {
+                failureCount--;
+            } else if (SLOW == evicted) {
+                slowCount--;
+            }
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeCursor] = outcome;
+        outcomeCursor = (outcomeCursor + 1) % outcomes.length;
+        if (FAILURE == outcome) {
+            failureCount++;
+        } else if (SLOW == outcome) {
+            slowCount++;
+        }
+
+        if (outcomeCount < config.getMinimumCalls()) {
+            return;
+        }
+        if (failureCount * 100 >= config.getFailureRateThreshold() * outcomeCount) {
+            transitionToOpen("failure rate " + failureCount * 100 / outcomeCount + "%");
+        } else if (slowCount * 100 >= config.getSlowCallRateThreshold() * outcomeCount) {
+            transitionToOpen("slow call rate " + slowCount * 100 / outcomeCount + "%");
+        }
+    }
+
+    private void transitionToOpen(String reason) {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+        logger.warn("分片 {} 熔断打开：{}", shard, reason);
+    }
+
+    private void resetWindow() {
+        Arrays.fill(outcomes, SUCCESS);
+        outcomeCursor = 0;
+        outcomeCount = 0;
+        failureCount = 0;
+        slowCount = 0;
+    }
+
+    private void recordLatency(long elapsedNanos) {
+        synchronized (latencies) {
+            latencies[latencyCursor] = elapsedNanos;
+            latencyCursor = (latencyCursor + 1) % latencies.length;
+            if (latencyCount < latencies.length) {
+                latencyCount++;
+            }
+        }
+    }
+
+    private int computeQueryTimeoutSeconds() {
+        if (latencyCount < config.getMinimumCalls()) {
+            return toSeconds(config.getMaxTimeoutMillis());
+        }
+        long[] samples = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(samples);
+        long p99Nanos = samples[Math.min(samples.length - 1, (int) Math.ceil(samples.length * 0.99) - 1)];
+        long timeoutMillis = (long) (TimeUnit.NANOSECONDS.toMillis(p99Nanos) * config.getTimeoutMultiplier());
+        timeoutMillis = Math.max(config.getMinTimeoutMillis(), Math.min(config.getMaxTimeoutMillis(), timeoutMillis));
+        return toSeconds(timeoutMillis);
+    }
+
+    private static int toSeconds(long millis) {
+        // Statement.setQueryTimeout 的精度是秒，向上取整且至少 1 秒
+        return (int) Math.max(1, (millis + 999) / 1000);
+    }
+
+}
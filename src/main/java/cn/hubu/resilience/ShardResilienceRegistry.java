@@ -0,0 +1,65 @@
+package cn.hubu.resilience;
+
+import cn.hubu.exception.ShardUnavailableException;
+import cn.hubu.properties.ResilienceConfig;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片弹性注册表，每个分片一份 ShardResilience，DynamicDataSource 获取连接时经过这里
+ */
+public class ShardResilienceRegistry {
+
+    private final ResilienceConfig config;
+
+    private final Map<String, ShardResilience> shards = new ConcurrentHashMap<>();
+
+    public ShardResilienceRegistry(ResilienceConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 在分片的隔离舱和熔断器保护下获取连接，返回的连接在 close 时释放隔离舱
+     *
+     * @param shard  分片名称，例如 db01
+     * @param target 分片真实的数据源
+     * @return 包装后的连接
+     */
+    public Connection getConnection(String shard, DataSource target) throws SQLException {
+        return getConnection(shard, target, null, null);
+    }
+
+    public Connection getConnection(String shard, DataSource target, String username, String password) throws SQLException {
+        ShardResilience resilience = get(shard);
+        int probe = resilience.acquire();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = null == username ? target.getConnection() : target.getConnection(username, password);
+        } catch (Throwable e) {
+            resilience.release();
+            // 连接池超时、网络不通等计入熔断；账号密码错误之类的配置问题不是分片不健康
+            boolean failed = resilience.isFailure(e);
+            boolean healthy = resilience.onCall(System.nanoTime() - start, failed);
+            resilience.settleProbe(probe, healthy);
+            throw new ShardUnavailableException(shard, "failed to obtain connection", e);
+        }
+        return ResilientConnectionHandler.wrap(connection, resilience, probe);
+    }
+
+    public ShardResilience get(String shard) {
+        return shards.computeIfAbsent(shard, key -> new ShardResilience(key, config));
+    }
+
+    public Map<String, ShardResilience> getShards() {
+        return Collections.unmodifiableMap(shards);
+    }
+
+}
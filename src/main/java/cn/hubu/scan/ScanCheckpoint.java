@@ -0,0 +1,139 @@
+package cn.hubu.scan;
+
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 全分片扫描的断点：每张物理表已经交给消费者的最后一个 key，以及已经扫完的物理表
+ * 恢复扫描时，没扫完的物理表从 lastKey 之后继续（Mapper 的 SQL 需要按 key 排序并处理 lastKey 条件），扫完的直接跳过
+ */
+public class ScanCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String COMPLETED = "completed.";
+
+    private static final String LAST_KEY = "lastKey.";
+
+    private static final String KEY_TYPE = "keyType.";
+
+    /**
+     * db01.003 -> 最后一个 key
+     */
+    private final Map<String, Object> lastKeys = new ConcurrentHashMap<>();
+
+    private final Set<String> completed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    public Object getLastKey(String slot) {
+        return lastKeys.get(slot);
+    }
+
+    public void setLastKey(String slot, Object lastKey) {
+        lastKeys.put(slot, lastKey);
+    }
+
+    public boolean isCompleted(String slot) {
+        return completed.contains(slot);
+    }
+
+    public void complete(String slot) {
+        completed.add(slot);
+    }
+
+    public Map<String, Object> getLastKeys() {
+        return Collections.unmodifiableMap(lastKeys);
+    }
+
+    public Set<String> getCompleted() {
+        return Collections.unmodifiableSet(completed);
+    }
+
+    /**
+     * 写入 properties 文件，先写临时文件再替换，避免写到一半崩溃导致断点损坏
+     */
+    public void save(Path file) throws IOException {
+        Properties properties = new Properties();
+        lastKeys.forEach((slot, lastKey) -> {
+            properties.setProperty(LAST_KEY + slot, lastKey.toString());
+            properties.setProperty(KEY_TYPE + slot, lastKey.getClass().getName());
+        });
+        for (String slot : completed) {
+            properties.setProperty(COMPLETED + slot, "true");
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "db-sharding scan checkpoint");
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 从 properties 文件读取断点，lastKey 按保存时记录的类型还原，绑定到 SQL 时和扫描时 keyExtractor 返回的类型一致；
+     * 没有记录类型的 lastKey 保持 String 原样绑定，不去猜是不是数字（例如 "007" 这类字符串主键）；文件不存在时返回空断点
+     */
+    public static ScanCheckpoint load(Path file) throws IOException {
+        ScanCheckpoint checkpoint = new ScanCheckpoint();
+        if (!Files.exists(file)) {
+            return checkpoint;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name);
+            if (name.startsWith(COMPLETED)) {
+                checkpoint.complete(name.substring(COMPLETED.length()));
+            } else if (name.startsWith(LAST_KEY)) {
+                String slot = name.substring(LAST_KEY.length());
+                checkpoint.setLastKey(slot, restore(properties.getProperty(KEY_TYPE + slot), value));
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * 按类型还原 lastKey：依次尝试 valueOf(String)、parse(CharSequence)、fromString(String)、String 构造器，
+     * 覆盖数字、BigDecimal、UUID、LocalDateTime、Timestamp 等 toString 可以还原的类型；还原不了时抛出异常，不退化成错误的类型
+     */
+    private static Object restore(String typeName, String value) throws IOException {
+        if (null == typeName || String.class.getName().equals(typeName)) {
+            return value;
+        }
+        try {
+            Class<?> type = ClassUtils.forName(typeName, ScanCheckpoint.class.getClassLoader());
+            for (String factory : new String[]{"valueOf", "parse", "fromString"}) {
+                Method method = ClassUtils.getStaticMethod(type, factory, "parse".equals(factory) ? CharSequence.class : String.class);
+                if (null != method && Modifier.isPublic(method.getModifiers()) && type.isAssignableFrom(method.getReturnType())) {
+                    return method.invoke(null, value);
+                }
+            }
+            Constructor<?> constructor = type.getConstructor(String.class);
+            return constructor.newInstance(value);
+        } catch (ReflectiveOperationException | LinkageError | IllegalArgumentException e) {
+            throw new IOException("cannot restore scan checkpoint key " + value + " as " + typeName, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ScanCheckpoint{lastKeys=" + lastKeys + ", completed=" + completed + "}";
+    }
+}
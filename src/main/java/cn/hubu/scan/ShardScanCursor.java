@@ -0,0 +1,298 @@
+package cn.hubu.scan;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.properties.ShardScanConfig;
+import cn.hubu.topology.ShardingTopology;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 全分片流式扫描游标：每张物理表一个扫描任务，在各自的线程上打开 MyBatis 游标逐行读取，
+ * 通过有界队列交给消费者，队列满时扫描线程阻塞（背压）。同一张物理表的行保持 SQL 中的顺序，不同物理表之间交错。
+ * 必须 close，或者消费完所有行后自动关闭
+ */
+public class ShardScanCursor<T> implements Cursor<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardScanCursor.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    private final String statement;
+
+    private final Map<String, Object> params;
+
+    private final Function<? super T, ?> keyExtractor;
+
+    private final ScanCheckpoint checkpoint;
+
+    private final int fetchSize;
+
+    private final ShardingTopology topology;
+
+    /**
+     * 物理表，db01.003；下标即 Item.slot
+     */
+    private final String[] slots;
+
+    private final BlockingQueue<Item> queue;
+
+    private final ExecutorService executor;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final AtomicInteger threadIndex = new AtomicInteger();
+
+    private boolean iteratorRetrieved;
+
+    private int finishedSlots;
+
+    private int currentIndex = -1;
+
+    ShardScanCursor(SqlSessionFactory sqlSessionFactory, String statement, Map<String, Object> params, Function<? super T, ?> keyExtractor,
+                    ScanCheckpoint checkpoint, ShardScanConfig config, ShardingTopology topology, String[] slots) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.statement = statement;
+        this.params = params;
+        this.keyExtractor = keyExtractor;
+        this.checkpoint = checkpoint;
+        this.fetchSize = config.getFetchSize();
+        this.topology = topology;
+        this.slots = slots;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(config.getParallelism(), slots.length)), runnable -> {
+            Thread thread = new Thread(runnable, "db-sharding-scan-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交所有没有扫完的物理表
+     */
+    void start() {
+        for (int slot = 0; slot < slots.length; slot++) {
+            if (checkpoint.isCompleted(slots[slot])) {
+                finishedSlots++;
+                continue;
+            }
+            int current = slot;
+            executor.execute(() -> scan(current));
+        }
+        if (finishedSlots == slots.length) {
+            close();
+        }
+    }
+
+    /**
+     * 在扫描线程上读取一张物理表
+     */
+    private void scan(int slot) {
+        if (closed.get()) {
+            return;
+        }
+        String name = slots[slot];
+        // db01.003，库超过 99 个时库号不止两位，按 '.' 切分
+        int dot = name.indexOf('.');
+        DBContextHolder.setDBKey(name.substring(2, dot));
+        DBContextHolder.setTBKey(name.substring(dot + 1));
+        DBContextHolder.setTopology(topology);
+        ShardScanner.setFetchSize(fetchSize);
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            Map<String, Object> param = new HashMap<>(params);
+            param.put("lastKey", checkpoint.getLastKey(name));
+            Cursor<T> cursor = sqlSession.selectCursor(statement, param);
+            for (T row : cursor) {
+                // 所有列都为空的行 MyBatis 返回 null，没有数据，跳过
+                if (null != row && !put(new Item(slot, row, null))) {
+                    return;
+                }
+            }
+            put(new Item(slot, null, null));
+        } catch (Throwable e) {
+            if (!closed.get()) {
+                put(new Item(slot, null, e));
+            }
+        } finally {
+            ShardScanner.clearFetchSize();
+            DBContextHolder.clearTopology();
+            DBContextHolder.clearDBKey();
+            DBContextHolder.clearTBKey();
+        }
+    }
+
+    /**
+     * 队列满时阻塞，游标关闭后放弃
+     *
+     * @return 是否放入成功
+     */
+    private boolean put(Item item) {
+        try {
+            while (!closed.get()) {
+                if (queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed.get();
+    }
+
+    @Override
+    public boolean isConsumed() {
+        return finishedSlots == slots.length;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    /**
+     * 本次扫描的断点，消费者处理完当前行后保存即可在崩溃后从下一行继续
+     */
+    public ScanCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (iteratorRetrieved) {
+            throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+        }
+        iteratorRetrieved = true;
+        return new ScanIterator();
+    }
+
+    /**
+     * 顺序流，关闭流时关闭游标
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), false).onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        executor.shutdownNow();
+        queue.clear();
+        if (null != topology) {
+            topology.unpin();
+        }
+        logger.debug("全分片扫描结束 statement：{} checkpoint：{}", statement, checkpoint);
+    }
+
+    private final class ScanIterator implements Iterator<T> {
+
+        private Item next;
+
+        @Override
+        public boolean hasNext() {
+            while (null == next) {
+                if (finishedSlots == slots.length) {
+                    close();
+                    return false;
+                }
+                Item item = take();
+                if (null != item.error) {
+                    close();
+                    throw new IllegalStateException("scan " + statement + " failed on " + slots[item.slot], item.error);
+                }
+                if (item.end) {
+                    finishedSlots++;
+                    checkpoint.complete(slots[item.slot]);
+                    continue;
+                }
+                next = item;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Item item = next;
+            next = null;
+            currentIndex++;
+            T row = (T) item.value;
+            if (null != keyExtractor) {
+                checkpoint.setLastKey(slots[item.slot], keyExtractor.apply(row));
+            }
+            return row;
+        }
+
+        private Item take() {
+            try {
+                while (true) {
+                    Item item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (null != item) {
+                        return item;
+                    }
+                    if (closed.get()) {
+                        throw new IllegalStateException("cursor is closed");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("interrupted while scanning " + statement, e);
+            }
+        }
+    }
+
+    /**
+     * 扫描线程交给消费者的一行；value、error 都为空时表示这张物理表扫完了
+     */
+    private static final class Item {
+
+        private final int slot;
+
+        private final Object value;
+
+        private final Throwable error;
+
+        private final boolean end;
+
+        Item(int slot, Object value, Throwable error) {
+            this.slot = slot;
+            this.value = value;
+            this.error = error;
+            this.end = null == value && null == error;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package cn.hubu.scan;
+
+import cn.hubu.dynamic.DynamicDataSource;
+import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.properties.ShardScanConfig;
+import cn.hubu.topology.ShardingTopology;
+import cn.hubu.util.ShardKeyUtil;
+import cn.hubu.util.ShardSqlUtil;
+import org.apache.ibatis.session.SqlSessionFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 全分片流式扫描，用于数据导出、重建索引等需要读取逻辑表全部数据的场景
+ * Mapper 中的扫描语句需要按 key 排序，并在参数 lastKey 不为空时只查 key 之后的数据，例如：
+ *    select * from user
+ *    <if test="lastKey != null">where id &gt; #{lastKey}</if>
+ *    order by id
+ * 分表的 Mapper 扫描 dbCount × tbCount 张物理表，不分表的扫描 dbCount 个库
+ */
+public class ShardScanner {
+
+    /**
+     * 扫描线程上的游标 fetchSize，由 ShardScanPlugin 设置到 Statement 上
+     */
+    private static final ThreadLocal<Integer> fetchSize = new ThreadLocal<>();
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    private final DBRouterConfig dbRouterConfig;
+
+    private final DynamicDataSource dynamicDataSource;
+
+    private final ShardScanConfig defaultConfig;
+
+    public ShardScanner(SqlSessionFactory sqlSessionFactory, DBRouterConfig dbRouterConfig, DynamicDataSource dynamicDataSource, ShardScanConfig defaultConfig) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.dbRouterConfig = dbRouterConfig;
+        this.dynamicDataSource = dynamicDataSource;
+        this.defaultConfig = defaultConfig;
+    }
+
+    /**
+     * 扫描所有物理表
+     *
+     * @param statement    Mapper 语句，例如 cn.hubu.mapper.UserMapper.scanAll
+     * @param params       语句的其它参数，lastKey 由扫描器填充
+     * @param keyExtractor 从一行中取出 key，用于记录断点；为 null 时不记录
+     * @param checkpoint   上次扫描的断点，为 null 时从头扫描
+     * @return 游标，用完必须关闭
+     */
+    public <T> ShardScanCursor<T> scan(String statement, Map<String, Object> params, Function<? super T, ?> keyExtractor, ScanCheckpoint checkpoint) {
+        return scan(statement, params, keyExtractor, checkpoint, defaultConfig);
+    }
+
+    public <T> ShardScanCursor<T> scan(String statement, Map<String, Object> params, Function<? super T, ?> keyExtractor, ScanCheckpoint checkpoint,
+                                       ShardScanConfig config) {
+        // 整个扫描固定在开始时的拓扑上
+        ShardingTopology topology = null == dynamicDataSource ? null : dynamicDataSource.pinTopology();
+        int dbCount = null == topology ? dbRouterConfig.getDbCount() : topology.getDbCount();
+        int tbCount = ShardSqlUtil.isSplitTable(statement) ? (null == topology ? dbRouterConfig.getTbCount() : topology.getTbCount()) : 1;
+
+        String[] slots = new String[dbCount * tbCount];
+        for (int db = 0; db < dbCount; db++) {
+            for (int tb = 0; tb < tbCount; tb++) {
+                // 库从1开始，表从0开始
+                slots[db * tbCount + tb] = "db" + ShardKeyUtil.dbKey(db + 1) + "." + ShardKeyUtil.tbKey(tb);
+            }
+        }
+        ShardScanCursor<T> cursor = null;
+        try {
+            cursor = new ShardScanCursor<>(sqlSessionFactory, statement, null == params ? Collections.<String, Object>emptyMap() : params,
+                    keyExtractor, null == checkpoint ? new ScanCheckpoint() : checkpoint, config, topology, slots);
+            cursor.start();
+        } catch (RuntimeException | Error e) {
+            // 游标没有交给调用方，在这里释放：close 会停止已经提交的扫描并释放拓扑
+            if (null != cursor) {
+                cursor.close();
+            } else if (null != topology) {
+                topology.unpin();
+            }
+            throw e;
+        }
+        return cursor;
+    }
+
+    /**
+     * 以 Stream 的形式扫描，流必须关闭（try-with-resources）
+     */
+    public <T> Stream<T> stream(String statement, Map<String, Object> params, Function<? super T, ?> keyExtractor, ScanCheckpoint checkpoint) {
+        ShardScanCursor<T> cursor = scan(statement, params, keyExtractor, checkpoint);
+        return cursor.stream();
+    }
+
+    public static Integer getFetchSize() {
+        return fetchSize.get();
+    }
+
+    static void setFetchSize(int size) {
+        fetchSize.set(size);
+    }
+
+    static void clearFetchSize() {
+        fetchSize.remove();
+    }
+
+}
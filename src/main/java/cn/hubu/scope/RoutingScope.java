@@ -0,0 +1,118 @@
+package cn.hubu.scope;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.dynamic.DynamicDataSource;
+import cn.hubu.topology.ShardingTopology;
+
+import java.util.Arrays;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 编程式路由作用域，由 ShardRouter.enter 打开，配合 try-with-resources 使用：
+ *    try (RoutingScope scope = shardRouter.enter(userId)) {
+ *        userMapper.update(user);
+ *    }
+ * 打开时保存外层（作用域或者 @DBRouter 方法）的路由并固定拓扑快照，关闭时恢复，因此可以嵌套；
+ * 最外层关闭后清除路由，线程上原来遗留的路由不会被恢复。
+ * 每个线程只有一个实例，嵌套的作用域共用它，按栈保存外层路由；栈深度不超过之前的最大深度时不分配内存。
+ * 每次 enter 必须且只能 close 一次，并且只能在打开它的线程上关闭
+ */
+public final class RoutingScope implements AutoCloseable {
+
+    private static final int INITIAL_DEPTH = 4;
+
+    private final DynamicDataSource dynamicDataSource;
+
+    /**
+     * 外层路由，下标为嵌套深度
+     */
+    private String[] dbKeys = new String[INITIAL_DEPTH];
+
+    private String[] tbKeys = new String[INITIAL_DEPTH];
+
+    /**
+     * 本层固定的拓扑快照，外层已经固定时为 null
+     */
+    private ShardingTopology[] pinned = new ShardingTopology[INITIAL_DEPTH];
+
+    private int depth;
+
+    RoutingScope(DynamicDataSource dynamicDataSource) {
+        this.dynamicDataSource = dynamicDataSource;
+    }
+
+    /**
+     * 保存外层路由，没有外层时保存 null；外层（作用域或者 @DBRouter）没有固定拓扑时在这里固定，关闭时释放
+     */
+    void push() {
+        if (depth == dbKeys.length) {
+            dbKeys = Arrays.copyOf(dbKeys, depth * 2);
+            tbKeys = Arrays.copyOf(tbKeys, depth * 2);
+            pinned = Arrays.copyOf(pinned, depth * 2);
+        }
+        boolean nested = DBContextHolder.isRouting();
+        dbKeys[depth] = nested ? DBContextHolder.getDBKey() : null;
+        tbKeys[depth] = nested ? DBContextHolder.getTBKey() : null;
+        ShardingTopology topology = null;
+        if (null != dynamicDataSource && null == DBContextHolder.getTopology()) {
+            topology = dynamicDataSource.pinTopology();
+            DBContextHolder.setTopology(topology);
+        }
+        pinned[depth] = topology;
+        depth++;
+        DBContextHolder.enterRouting();
+    }
+
+    /**
+     * 恢复外层路由，最外层关闭后当前线程没有路由信息
+     */
+    @Override
+    public void close() {
+        if (0 == depth) {
+            throw new IllegalStateException("routing scope is not open");
+        }
+        depth--;
+        DBContextHolder.exitRouting();
+        restore(dbKeys[depth], tbKeys[depth]);
+        dbKeys[depth] = null;
+        tbKeys[depth] = null;
+        ShardingTopology topology = pinned[depth];
+        if (null != topology) {
+            pinned[depth] = null;
+            DBContextHolder.setTopology(null);
+            topology.unpin();
+        }
+    }
+
+    /**
+     * 没有外层路由时置为 null 而不是 remove：remove 之后下一次 set 会重新创建 ThreadLocal 的 Entry，
+     * 循环中反复打开作用域就会反复分配；值为 null 的 Entry 不持有任何对象
+     */
+    private static void restore(String dbKey, String tbKey) {
+        DBContextHolder.setDBKey(dbKey);
+        DBContextHolder.setTBKey(tbKey);
+    }
+
+    /**
+     * 当前嵌套深度，没有打开的作用域时为 0
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 当前路由的库，例如 01
+     */
+    public String getDBKey() {
+        return DBContextHolder.getDBKey();
+    }
+
+    /**
+     * 当前路由的表，例如 003
+     */
+    public String getTBKey() {
+        return DBContextHolder.getTBKey();
+    }
+
+}
@@ -0,0 +1,128 @@
+package cn.hubu.scope;
+
+import cn.hubu.dynamic.DynamicDataSource;
+import cn.hubu.strategy.IDBRouterStrategy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 编程式路由入口，不经过 Spring 代理和 DBRouterJoinPoint 切面，适合按分片循环的维护任务等热点代码：
+ *    for (ShardSlot slot : shardRouter.slots()) {
+ *        try (RoutingScope scope = shardRouter.enter(slot)) {
+ *            userMapper.deleteExpired(deadline);
+ *        }
+ *    }
+ * 作用域内调用的 Mapper 方法不要再加 @DBRouter，否则会被切面按参数重新路由（结束后恢复为作用域的路由）
+ */
+public class ShardRouter {
+
+    private final IDBRouterStrategy dbRouterStrategy;
+
+    private final ThreadLocal<RoutingScope> scopes;
+
+    /**
+     * 按当前库表数量缓存的全部物理表
+     */
+    private volatile List<ShardSlot> slots = Collections.emptyList();
+
+    /**
+     * @param dbRouterStrategy  路由策略
+     * @param dynamicDataSource 用于在作用域内固定拓扑快照，为 null 时不固定
+     */
+    public ShardRouter(IDBRouterStrategy dbRouterStrategy, DynamicDataSource dynamicDataSource) {
+        this.dbRouterStrategy = dbRouterStrategy;
+        this.scopes = ThreadLocal.withInitial(() -> new RoutingScope(dynamicDataSource));
+    }
+
+    /**
+     * 按路由字段的值打开作用域，由路由策略计算库表
+     *
+     * @param key 路由字段的值，例如 userId
+     */
+    public RoutingScope enter(String key) {
+        RoutingScope scope = scopes.get();
+        scope.push();
+        try {
+            dbRouterStrategy.doRouter(key);
+        } catch (RuntimeException e) {
+            scope.close();
+            throw e;
+        }
+        return scope;
+    }
+
+    public RoutingScope enter(long key) {
+        RoutingScope scope = scopes.get();
+        scope.push();
+        try {
+            dbRouterStrategy.doRouter(key);
+        } catch (RuntimeException e) {
+            scope.close();
+            throw e;
+        }
+        return scope;
+    }
+
+    /**
+     * 直接指定库表打开作用域
+     *
+     * @param dbIdx 库，从1开始
+     * @param tbIdx 表，从0开始
+     */
+    public RoutingScope enter(int dbIdx, int tbIdx) {
+        RoutingScope scope = scopes.get();
+        scope.push();
+        // 在固定拓扑之后检查，拿到的是本次作用域使用的库表数量
+        if (dbIdx < 1 || dbIdx > dbRouterStrategy.dbCount() || tbIdx < 0 || tbIdx >= dbRouterStrategy.tbCount()) {
+            int dbCount = dbRouterStrategy.dbCount();
+            int tbCount = dbRouterStrategy.tbCount();
+            scope.close();
+            throw new IllegalArgumentException("db" + dbIdx + ".tb" + tbIdx + " out of range, dbCount=" + dbCount + " tbCount=" + tbCount);
+        }
+        dbRouterStrategy.setDBKey(dbIdx);
+        dbRouterStrategy.setTBKey(tbIdx);
+        return scope;
+    }
+
+    public RoutingScope enter(ShardSlot slot) {
+        return enter(slot.getDbIdx(), slot.getTbIdx());
+    }
+
+    /**
+     * 全部物理表，按库、表顺序排列；库表数量不变时返回同一个不可变列表
+     * 拓扑刷新后重新计算，遍历期间发生刷新时，已经不存在的库在 enter 时会抛出异常
+     */
+    public List<ShardSlot> slots() {
+        int dbCount = dbRouterStrategy.dbCount();
+        int tbCount = dbRouterStrategy.tbCount();
+        List<ShardSlot> current = slots;
+        // 最后一张表是 (dbCount, tbCount - 1) 说明缓存的就是当前库表数量
+        if (!current.isEmpty()) {
+            ShardSlot last = current.get(current.size() - 1);
+            if (last.getDbIdx() == dbCount && last.getTbIdx() == tbCount - 1) {
+                return current;
+            }
+        }
+        ShardSlot[] all = new ShardSlot[dbCount * tbCount];
+        for (int db = 0; db < dbCount; db++) {
+            for (int tb = 0; tb < tbCount; tb++) {
+                all[db * tbCount + tb] = new ShardSlot(db + 1, tb);
+            }
+        }
+        current = Collections.unmodifiableList(Arrays.asList(all));
+        slots = current;
+        return current;
+    }
+
+    /**
+     * 当前线程的作用域，可以用来查看嵌套深度
+     */
+    public RoutingScope current() {
+        return scopes.get();
+    }
+
+}
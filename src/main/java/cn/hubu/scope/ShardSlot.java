@@ -0,0 +1,53 @@
+package cn.hubu.scope;
+
+import cn.hubu.util.ShardKeyUtil;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 一张物理表（库, 表），库从1开始，表从0开始；不可变，由 ShardRouter 按拓扑缓存复用
+ */
+public final class ShardSlot {
+
+    private final int dbIdx;
+
+    private final int tbIdx;
+
+    private final String name;
+
+    public ShardSlot(int dbIdx, int tbIdx) {
+        this.dbIdx = dbIdx;
+        this.tbIdx = tbIdx;
+        this.name = "db" + ShardKeyUtil.dbKey(dbIdx) + "." + ShardKeyUtil.tbKey(tbIdx);
+    }
+
+    public int getDbIdx() {
+        return dbIdx;
+    }
+
+    public int getTbIdx() {
+        return tbIdx;
+    }
+
+    /**
+     * 01
+     */
+    public String getDbKey() {
+        return ShardKeyUtil.dbKey(dbIdx);
+    }
+
+    /**
+     * 003
+     */
+    public String getTbKey() {
+        return ShardKeyUtil.tbKey(tbIdx);
+    }
+
+    /**
+     * db01.003，与全分片扫描断点中的物理表名一致
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
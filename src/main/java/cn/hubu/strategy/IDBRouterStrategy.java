@@ -1,5 +1,7 @@
 package cn.hubu.strategy;
 
+import java.lang.reflect.Method;
+
 /**
  * @description: 路由策略
  * @Author: Xhy
@@ -14,6 +16,27 @@ public interface IDBRouterStrategy {
      */
     void doRouter(String dbKeyAttr);
 
+    /**
+     * 路由计算，可以使用被拦截方法的全部参数；默认只使用路由字段
+     *
+     * @param dbKeyAttr 路由字段
+     * @param method    被 @DBRouter 拦截的方法
+     * @param args      方法参数
+     */
+    default void doRouter(String dbKeyAttr, Method method, Object[] args) {
+        doRouter(dbKeyAttr);
+    }
+
+    /**
+     * 数字路由字段的路由计算，结果与 doRouter(Long.toString(dbKeyAttr)) 相同；
+     * 默认转成字符串计算，按数值计算的策略覆盖它，避免每次路由生成字符串
+     *
+     * @param dbKeyAttr 路由字段
+     */
+    default void doRouter(long dbKeyAttr) {
+        doRouter(Long.toString(dbKeyAttr));
+    }
+
     /**
      * 手动设置分库路由
      *
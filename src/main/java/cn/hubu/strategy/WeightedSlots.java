@@ -0,0 +1,130 @@
+package cn.hubu.strategy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 按权重分配的库槽位表：每个库占 weight 个连续槽位，路由时先算出槽位，再查表得到库，查表是 O(1)
+ * 例如 db01 权重 1、db02 权重 3：槽位 [db01, db02, db02, db02]，db02 承担 3/4 的数据
+ * 没有配置权重时每个库一个槽位，槽位下标就是库下标，路由结果与不使用权重时完全一致；
+ * 权重先按最大公约数约分，所有库权重相同（例如都为 2）时与不配置权重完全一致
+ * 库按顺序连续排列，新增的库排在末尾，Jump 策略扩容时仍然只迁移新增槽位对应的数据
+ */
+public final class WeightedSlots {
+
+    private final int dbCount;
+
+    /**
+     * 槽位 -> 库下标（从1开始）
+     */
+    private final int[] slotToDb;
+
+    /**
+     * 每个库约分后的权重，下标为库下标 - 1
+     */
+    private final int[] weights;
+
+    private final boolean weighted;
+
+    private WeightedSlots(int dbCount, int[] weights) {
+        int divisor = 0;
+        for (int weight : weights) {
+            divisor = gcd(divisor, weight);
+        }
+        if (divisor > 1) {
+            for (int db = 0; db < dbCount; db++) {
+                weights[db] /= divisor;
+            }
+        }
+        this.dbCount = dbCount;
+        this.weights = weights;
+        int total = 0;
+        boolean weighted = false;
+        for (int weight : weights) {
+            total += weight;
+            weighted |= 1 != weight;
+        }
+        if (0 == total) {
+            throw new IllegalStateException("total weight of " + dbCount + " databases is 0");
+        }
+        this.weighted = weighted;
+        this.slotToDb = new int[total];
+        int slot = 0;
+        for (int db = 0; db < dbCount; db++) {
+            for (int i = 0; i < weights[db]; i++) {
+                slotToDb[slot++] = db + 1;
+            }
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        while (0 != b) {
+            int next = a % b;
+            a = b;
+            b = next;
+        }
+        return a;
+    }
+
+    /**
+     * @param dbCount 库数量
+     * @param weights db01 -> 权重，没有配置的库权重为 1；权重为 0 的库不占槽位，不会再路由到它，
+     *                已经在它上面的数据也查不到了，需要先迁移走
+     */
+    public static WeightedSlots of(int dbCount, Map<String, Integer> weights) {
+        int[] dbWeights = new int[dbCount];
+        for (int db = 0; db < dbCount; db++) {
+            Integer weight = null == weights ? null : weights.get(String.format("db%02d", db + 1));
+            if (null != weight && weight < 0) {
+                throw new IllegalStateException("weight of db" + String.format("%02d", db + 1) + " must not be negative: " + weight);
+            }
+            dbWeights[db] = null == weight ? 1 : weight;
+        }
+        return new WeightedSlots(dbCount, dbWeights);
+    }
+
+    /**
+     * 槽位数量，即权重之和；未配置权重时等于库数量
+     */
+    public int size() {
+        return slotToDb.length;
+    }
+
+    /**
+     * 槽位对应的库下标，从1开始
+     */
+    public int dbIdx(int slot) {
+        return slotToDb[slot];
+    }
+
+    /**
+     * 约分后的权重是否不全为 1，即各库承担的比例是否不同
+     */
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    public int getDbCount() {
+        return dbCount;
+    }
+
+    /**
+     * 各库预期承担的数据（负载）比例，db01 -> 0.25
+     */
+    public Map<String, Double> expectedShares() {
+        Map<String, Double> shares = new LinkedHashMap<>();
+        for (int db = 0; db < dbCount; db++) {
+            shares.put(String.format("db%02d", db + 1), (double) weights[db] / slotToDb.length);
+        }
+        return Collections.unmodifiableMap(shares);
+    }
+
+    @Override
+    public String toString() {
+        return "WeightedSlots{dbCount=" + dbCount + ", weights=" + Arrays.toString(weights) + ", shares=" + expectedShares() + "}";
+    }
+}
@@ -0,0 +1,250 @@
+package cn.hubu.strategy.impl;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.exception.TypeConversionException;
+import cn.hubu.properties.CustomRouterConfig;
+import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.util.HashUtil;
+import cn.hubu.util.ShardKeyUtil;
+import org.apache.commons.lang.StringUtils;
+import org.apache.ibatis.annotations.Param;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 基于 SpEL 表达式的路由策略，分库、分表各一个表达式，可以引用路由字段和方法的多个参数
+ * 表达式在启动时解析，第一次求值拿到参数的实际类型后立即编译为字节码，之后不再解释执行；
+ * 参数类型变化导致编译后的代码不可用时自动退回解释执行（SpelCompilerMode.MIXED）
+ */
+public class DBRouterStrategyCustom implements IDBRouterStrategy {
+
+    private final Logger logger = LoggerFactory.getLogger(DBRouterStrategyCustom.class);
+
+    private final DBRouterConfig dbRouterConfig;
+
+    private final RouterExpression dbExpression;
+
+    private final RouterExpression tbExpression;
+
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    /**
+     * 方法 -> 参数名，优先 @Param，其次编译保留的参数名，都没有时为 null（只能用 #p0）
+     */
+    private final Map<Method, String[]> parameterNames = new ConcurrentHashMap<>();
+
+    /**
+     * 每个线程复用一个求值上下文，路由时不再创建
+     */
+    private final ThreadLocal<RouterContext> contexts = ThreadLocal.withInitial(RouterContext::new);
+
+    public DBRouterStrategyCustom(DBRouterConfig dbRouterConfig, CustomRouterConfig customRouterConfig) {
+        this.dbRouterConfig = dbRouterConfig;
+        if (StringUtils.isBlank(customRouterConfig.getDbExpression()) || StringUtils.isBlank(customRouterConfig.getTbExpression())) {
+            throw new IllegalStateException("router-strategy is custom but custom.db-expression or custom.tb-expression is not configured");
+        }
+        SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, DBRouterStrategyCustom.class.getClassLoader()));
+        this.dbExpression = new RouterExpression("db", (SpelExpression) parser.parseExpression(customRouterConfig.getDbExpression()));
+        this.tbExpression = new RouterExpression("tb", (SpelExpression) parser.parseExpression(customRouterConfig.getTbExpression()));
+    }
+
+    @Override
+    public void doRouter(String dbKeyAttr) {
+        doRouter(dbKeyAttr, null, null);
+    }
+
+    /**
+     * 计算方式：
+     *    dbIdx = dbExpression + 1
+     *    tbIdx = tbExpression
+     * @param dbKeyAttr 路由字段
+     * @param method    被拦截的方法
+     * @param args      方法参数
+     */
+    @Override
+    public void doRouter(String dbKeyAttr, Method method, Object[] args) {
+        RouterContext context = contexts.get();
+        context.bind(dbKeyAttr, null == method ? null : parameterNames(method), args,
+                dbRouterConfig.getDbCount(), dbRouterConfig.getTbCount());
+        int dbIdx;
+        int tbIdx;
+        try {
+            // 库从1开始，表从0开始
+            dbIdx = dbExpression.evaluate(context, dbRouterConfig.getDbCount()) + 1;
+            tbIdx = tbExpression.evaluate(context, dbRouterConfig.getTbCount());
+        } finally {
+            context.release();
+        }
+
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
+        logger.debug("数据库路由 dbIdx：{} tbIdx：{}", dbIdx, tbIdx);
+    }
+
+    /**
+     * 两个表达式是否都已经编译为字节码
+     */
+    public boolean isCompiled() {
+        return dbExpression.compiled && tbExpression.compiled;
+    }
+
+    private String[] parameterNames(Method method) {
+        String[] names = parameterNames.get(method);
+        if (null == names) {
+            names = resolveParameterNames(method);
+            parameterNames.put(method, names);
+        }
+        return names;
+    }
+
+    private String[] resolveParameterNames(Method method) {
+        String[] discovered = parameterNameDiscoverer.getParameterNames(method);
+        Annotation[][] annotations = method.getParameterAnnotations();
+        String[] names = new String[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof Param) {
+                    names[i] = ((Param) annotation).value();
+                }
+            }
+            if (null == names[i] && null != discovered) {
+                names[i] = discovered[i];
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public void setDBKey(int dbIdx) {
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+    }
+
+    @Override
+    public void setTBKey(int tbIdx) {
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
+    }
+
+    @Override
+    public int dbCount() {
+        return dbRouterConfig.getDbCount();
+    }
+
+    @Override
+    public int tbCount() {
+        return dbRouterConfig.getTbCount();
+    }
+
+    @Override
+    public void clear() {
+        DBContextHolder.clearDBKey();
+        DBContextHolder.clearTBKey();
+    }
+
+    /**
+     * 单个路由表达式，第一次求值成功后立即尝试编译
+     */
+    private final class RouterExpression {
+
+        private final String name;
+
+        private final SpelExpression expression;
+
+        private volatile boolean compileAttempted;
+
+        private volatile boolean compiled;
+
+        RouterExpression(String name, SpelExpression expression) {
+            this.name = name;
+            this.expression = expression;
+        }
+
+        int evaluate(StandardEvaluationContext context, int bound) {
+            Object value = expression.getValue(context);
+            if (!compileAttempted) {
+                compileAttempted = true;
+                compiled = expression.compileExpression();
+                if (!compiled) {
+                    logger.warn("路由表达式 {} = {} 无法编译为字节码，将解释执行", name, expression.getExpressionString());
+                }
+            }
+            int idx;
+            if (value instanceof Number) {
+                idx = ((Number) value).intValue();
+            } else if (null != value && HashUtil.isLong(value.toString())) {
+                idx = (int) Long.parseLong(value.toString());
+            } else {
+                throw new TypeConversionException(name + " expression [" + expression.getExpressionString() + "] result " + value, Integer.class);
+            }
+            if (idx < 0 || idx >= bound) {
+                throw new IllegalStateException(name + " expression [" + expression.getExpressionString() + "] result " + idx + " out of range [0, " + bound + ")");
+            }
+            return idx;
+        }
+    }
+
+    /**
+     * 线程复用的求值上下文，记录上一次绑定的参数名，用完后解除对参数的引用
+     */
+    private static final class RouterContext extends StandardEvaluationContext {
+
+        private static final String[] POSITIONAL = new String[16];
+
+        static {
+            for (int i = 0; i < POSITIONAL.length; i++) {
+                POSITIONAL[i] = "p" + i;
+            }
+        }
+
+        private String[] boundNames;
+
+        private int boundArgs;
+
+        void bind(String key, String[] names, Object[] args, int dbCount, int tbCount) {
+            setVariable("key", null == key ? null : HashUtil.isLong(key) ? (Object) Long.valueOf(key) : key);
+            setVariable("dbCount", dbCount);
+            setVariable("tbCount", tbCount);
+            if (null == args) {
+                return;
+            }
+            for (int i = 0; i < args.length; i++) {
+                setVariable(i < POSITIONAL.length ? POSITIONAL[i] : "p" + i, args[i]);
+                if (null != names && null != names[i]) {
+                    setVariable(names[i], args[i]);
+                }
+            }
+            boundNames = names;
+            boundArgs = args.length;
+        }
+
+        /**
+         * setVariable(name, null) 会移除变量，避免线程持有业务对象
+         */
+        void release() {
+            setVariable("key", null);
+            for (int i = 0; i < boundArgs; i++) {
+                setVariable(i < POSITIONAL.length ? POSITIONAL[i] : "p" + i, null);
+                if (null != boundNames && null != boundNames[i]) {
+                    setVariable(boundNames[i], null);
+                }
+            }
+            boundNames = null;
+            boundArgs = 0;
+        }
+    }
+
+}
@@ -3,6 +3,8 @@ package cn.hubu.strategy.impl;
 import cn.hubu.DBContextHolder;
 import cn.hubu.properties.DBRouterConfig;
 import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.strategy.WeightedSlots;
+import cn.hubu.util.ShardKeyUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,40 +35,45 @@ public class DBRouterStrategyHashCode implements IDBRouterStrategy {
      * (dbIdx - 1) 因为库是从1开始算的，因此这里需要-1
      * dbRouterConfig.getTbCount() * (dbIdx - 1) 是为了算出当前库前面的多少张表，也就是要跳过前面的这些表，
      * 然后来计算当前库中的表
+     * 配置了权重时 size = 权重之和*表的数量，idx / 表的数量 得到的是槽位，再查槽位表得到库；
+     * 此时 size 通常不是 2 的幂，改用取模散列
      * @param dbKeyAttr 路由字段
      */
     @Override
     public void doRouter(String dbKeyAttr) {
 
         // 获取所有表
-        int size = dbRouterConfig.getDbCount() * dbRouterConfig.getTbCount();
+        WeightedSlots slots = dbRouterConfig.getWeightedSlots();
+        int size = slots.size() * dbRouterConfig.getTbCount();
 
         // 扰动函数；在 JDK 的 HashMap 中，对于一个元素的存放，需要进行哈希散列。而为了让散列更加均匀，所以添加了扰动函数。
         // 因此在这里借鉴 HashMap 源码
-        int idx = (size - 1) & (dbKeyAttr.hashCode() ^ (dbKeyAttr.hashCode() >>> 16));
+        int hash = dbKeyAttr.hashCode() ^ (dbKeyAttr.hashCode() >>> 16);
+        int idx = slots.isWeighted() ? Math.floorMod(hash, size) : (size - 1) & hash;
 
         // 库表索引；相当于是把一个长条的桶，切割成段，对应分库分表中的库编号和表编号
-        // 获取对应的库，库是从1开始算的，因此要在此基础上+1
-        int dbIdx = idx / dbRouterConfig.getTbCount() + 1;
+        // 获取对应的库，库是从1开始算的；未配置权重时槽位表就是 槽位 + 1
+        int dbIdx = slots.dbIdx(idx / dbRouterConfig.getTbCount());
 
-        int tbIdx = idx - dbRouterConfig.getTbCount() * (dbIdx - 1);
+        // 等价于 idx - dbRouterConfig.getTbCount() * 槽位
+        int tbIdx = idx % dbRouterConfig.getTbCount();
 
-        // 设置库表信息到上下文,String.format("%02d", dbIdx),数据不为两位的话则在前面补0,这里的策略主要和设置的库表名称有关
+        // 设置库表信息到上下文,String.format("%02d", dbIdx)（ShardKeyUtil 中预先生成）,数据不为两位的话则在前面补0,这里的策略主要和设置的库表名称有关
         // 例如: 库名称为test_01 那就写%02d。表名称user_001 对应%03d
-        DBContextHolder.setDBKey(String.format("%02d", dbIdx));
-        DBContextHolder.setTBKey(String.format("%03d", tbIdx));
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
         logger.debug("数据库路由 dbIdx：{} tbIdx：{}",  dbIdx, tbIdx);
     }
 
 
     @Override
     public void setDBKey(int dbIdx) {
-        DBContextHolder.setDBKey(String.format("%02d", dbIdx));
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
     }
 
     @Override
     public void setTBKey(int tbIdx) {
-        DBContextHolder.setTBKey(String.format("%03d", tbIdx));
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
     }
 
     @Override
@@ -0,0 +1,86 @@
+package cn.hubu.strategy.impl;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.strategy.WeightedSlots;
+import cn.hubu.util.HashUtil;
+import cn.hubu.util.ShardKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 基于 MurmurHash3 + Jump Consistent Hash 的路由策略，扩容时数据迁移量最小
+ */
+public class DBRouterStrategyJump implements IDBRouterStrategy {
+
+    private final Logger logger = LoggerFactory.getLogger(DBRouterStrategyJump.class);
+
+    private final DBRouterConfig dbRouterConfig;
+
+    public DBRouterStrategyJump(DBRouterConfig dbRouterConfig) {
+        this.dbRouterConfig = dbRouterConfig;
+    }
+
+    /**
+     * 计算方式：
+     *    h = 数字键 fmix64(key)，其它键 fmix64(murmur3_32(UTF-16LE 字节))，与 murmur 策略相同
+     *    idx = jumpConsistentHash(h, size)
+     * 新增的库排在末尾（占据新增的 idx），因此从 n 个库扩到 n + 1 个库时只有约 1/(n + 1) 的数据需要迁移，且都迁到新库
+     * 配置了权重时 size = 权重之和 * tbCount，idx / tbCount 是槽位，再查槽位表得到库
+     * @param dbKeyAttr 路由字段
+     */
+    @Override
+    public void doRouter(String dbKeyAttr) {
+        route(HashUtil.hash64(dbKeyAttr));
+    }
+
+    @Override
+    public void doRouter(long dbKeyAttr) {
+        route(HashUtil.hash64(dbKeyAttr));
+    }
+
+    private void route(long hash64) {
+        // 所有表
+        WeightedSlots slots = dbRouterConfig.getWeightedSlots();
+        int size = slots.size() * dbRouterConfig.getTbCount();
+
+        int idx = HashUtil.jumpConsistentHash(hash64, size);
+
+        // 库从1开始，表从0开始
+        int dbIdx = slots.dbIdx(idx / dbRouterConfig.getTbCount());
+        int tbIdx = idx % dbRouterConfig.getTbCount();
+
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
+        logger.debug("数据库路由 dbIdx：{} tbIdx：{}", dbIdx, tbIdx);
+    }
+
+    @Override
+    public void setDBKey(int dbIdx) {
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+    }
+
+    @Override
+    public void setTBKey(int tbIdx) {
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
+    }
+
+    @Override
+    public int dbCount() {
+        return dbRouterConfig.getDbCount();
+    }
+
+    @Override
+    public int tbCount() {
+        return dbRouterConfig.getTbCount();
+    }
+
+    @Override
+    public void clear() {
+        DBContextHolder.clearDBKey();
+        DBContextHolder.clearTBKey();
+    }
+}
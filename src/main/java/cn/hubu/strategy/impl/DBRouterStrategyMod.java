@@ -4,6 +4,8 @@ import cn.hubu.DBContextHolder;
 import cn.hubu.exception.TypeConversionException;
 import cn.hubu.properties.DBRouterConfig;
 import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.strategy.WeightedSlots;
+import cn.hubu.util.ShardKeyUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +28,9 @@ public class DBRouterStrategyMod implements IDBRouterStrategy {
      * 计算方式：
      *    dbIdx = dbKeyAttr mod dbCount
      *    dbIdx = dbKeyAttr mod tbCount
+     * 配置了权重时：
+     *    idx = dbKeyAttr mod (权重之和 * tbCount)
+     *    dbIdx = 槽位表[idx / tbCount]，tbIdx = idx mod tbCount
      * @param dbKeyAttr 路由字段
      */
     @Override
@@ -36,23 +41,36 @@ public class DBRouterStrategyMod implements IDBRouterStrategy {
         } catch (NumberFormatException e) {
             throw new TypeConversionException(dbKeyAttr, Long.class);
         }
+        doRouter(dkKey);
+    }
 
-        int dbIdx = (int) (dkKey % dbRouterConfig.getDbCount()) + 1;
-        int tbIdx = (int) (dkKey % dbRouterConfig.getTbCount());
+    @Override
+    public void doRouter(long dkKey) {
+        int dbIdx;
+        int tbIdx;
+        WeightedSlots slots = dbRouterConfig.getWeightedSlots();
+        if (slots.isWeighted()) {
+            int idx = (int) Math.floorMod(dkKey, (long) slots.size() * dbRouterConfig.getTbCount());
+            dbIdx = slots.dbIdx(idx / dbRouterConfig.getTbCount());
+            tbIdx = idx % dbRouterConfig.getTbCount();
+        } else {
+            dbIdx = (int) (dkKey % dbRouterConfig.getDbCount()) + 1;
+            tbIdx = (int) (dkKey % dbRouterConfig.getTbCount());
+        }
 
-        DBContextHolder.setDBKey(String.format("%02d", dbIdx));
-        DBContextHolder.setTBKey(String.format("%03d", tbIdx));
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
         logger.debug("数据库路由 dbIdx：{} tbIdx：{}", dbIdx, tbIdx);
     }
 
     @Override
     public void setDBKey(int dbIdx) {
-        DBContextHolder.setDBKey(String.format("%02d", dbIdx));
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
     }
 
     @Override
     public void setTBKey(int tbIdx) {
-        DBContextHolder.setTBKey(String.format("%03d", tbIdx));
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
     }
 
     @Override
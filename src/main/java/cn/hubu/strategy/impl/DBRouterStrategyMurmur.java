@@ -0,0 +1,91 @@
+package cn.hubu.strategy.impl;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.strategy.WeightedSlots;
+import cn.hubu.util.HashUtil;
+import cn.hubu.util.ShardKeyUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 基于 MurmurHash3 的路由策略，库表数量不要求是 2 的幂
+ * 其它语言实现兼容的路由时按以下方式计算（见 HashUtil.hash64）：
+ *    十进制整数键（long 范围内）：h64 = fmix64(key)
+ *    其它键：h32 = MurmurHash3_x86_32(seed = 0)，输入是 Java 字符串的 UTF-16 code unit 按小端排列的字节（即 UTF-16LE，无 BOM），
+ *          不是 UTF-8；h64 = fmix64(h32 作为无符号数)
+ *    idx = ((h64 >>> 32) * size) >>> 32，size = 库数量（或权重之和） * 表数量
+ */
+public class DBRouterStrategyMurmur implements IDBRouterStrategy {
+
+    private final Logger logger = LoggerFactory.getLogger(DBRouterStrategyMurmur.class);
+
+    private final DBRouterConfig dbRouterConfig;
+
+    public DBRouterStrategyMurmur(DBRouterConfig dbRouterConfig) {
+        this.dbRouterConfig = dbRouterConfig;
+    }
+
+    /**
+     * 计算方式：
+     *    h = 数字键 fmix64(key)，其它键 fmix64(murmur3_32(UTF-16LE 字节))，取高 32 位
+     *    idx = (h * size) >>> 32，把哈希均匀映射到 [0, size)，不需要 size 是 2 的幂
+     * 与 hash 策略的 (size - 1) & h 相比，3 库 8 表这类拓扑不会出现永远没有数据的表，连续的数字 id 也不会扎堆
+     * 配置了权重时 size = 权重之和 * tbCount，idx / tbCount 是槽位，再查槽位表得到库
+     * @param dbKeyAttr 路由字段
+     */
+    @Override
+    public void doRouter(String dbKeyAttr) {
+        route(HashUtil.hash64(dbKeyAttr));
+    }
+
+    @Override
+    public void doRouter(long dbKeyAttr) {
+        route(HashUtil.hash64(dbKeyAttr));
+    }
+
+    private void route(long hash64) {
+        // 所有表
+        WeightedSlots slots = dbRouterConfig.getWeightedSlots();
+        int size = slots.size() * dbRouterConfig.getTbCount();
+
+        int idx = HashUtil.reduce((int) (hash64 >>> 32), size);
+
+        // 库从1开始，表从0开始
+        int dbIdx = slots.dbIdx(idx / dbRouterConfig.getTbCount());
+        int tbIdx = idx % dbRouterConfig.getTbCount();
+
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
+        logger.debug("数据库路由 dbIdx：{} tbIdx：{}", dbIdx, tbIdx);
+    }
+
+    @Override
+    public void setDBKey(int dbIdx) {
+        DBContextHolder.setDBKey(ShardKeyUtil.dbKey(dbIdx));
+    }
+
+    @Override
+    public void setTBKey(int tbIdx) {
+        DBContextHolder.setTBKey(ShardKeyUtil.tbKey(tbIdx));
+    }
+
+    @Override
+    public int dbCount() {
+        return dbRouterConfig.getDbCount();
+    }
+
+    @Override
+    public int tbCount() {
+        return dbRouterConfig.getTbCount();
+    }
+
+    @Override
+    public void clear() {
+        DBContextHolder.clearDBKey();
+        DBContextHolder.clearTBKey();
+    }
+}
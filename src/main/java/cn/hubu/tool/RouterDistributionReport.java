@@ -0,0 +1,217 @@
+package cn.hubu.tool;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.enums.RouterStrategyEnum;
+import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.strategy.IDBRouterStrategy;
+import cn.hubu.strategy.WeightedSlots;
+import cn.hubu.strategy.impl.DBRouterStrategyHashCode;
+import cn.hubu.strategy.impl.DBRouterStrategyJump;
+import cn.hubu.strategy.impl.DBRouterStrategyMod;
+import cn.hubu.strategy.impl.DBRouterStrategyMurmur;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 路由分布检测：用给定拓扑和路由策略对一批样本 key 做路由，输出每张物理表的数据量、卡方检验和倾斜度
+ * 用法：java -cp db-sharding-springboot-starter.jar:... cn.hubu.tool.RouterDistributionReport hash 3 8 keys.txt [db01=1,db02=4]
+ * keys.txt 每行一个路由键；配置了权重时按权重计算每张表的期望数据量，并输出各库的预期占比
+ */
+public class RouterDistributionReport {
+
+    private final int dbCount;
+
+    private final int tbCount;
+
+    /**
+     * 每张物理表命中的 key 数量，下标 = (dbIdx - 1) * tbCount + tbIdx
+     */
+    private final long[] counts;
+
+    /**
+     * 各库的预期占比，下标为库下标 - 1
+     */
+    private final double[] expectedShares;
+
+    private long total;
+
+    public RouterDistributionReport(int dbCount, int tbCount) {
+        this(dbCount, tbCount, WeightedSlots.of(dbCount, null));
+    }
+
+    public RouterDistributionReport(int dbCount, int tbCount, WeightedSlots slots) {
+        this.dbCount = dbCount;
+        this.tbCount = tbCount;
+        this.counts = new long[dbCount * tbCount];
+        this.expectedShares = slots.expectedShares().values().stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("usage: RouterDistributionReport <mod|hash|murmur|jump> <dbCount> <tbCount> <keyFile> [db01=1,db02=4]");
+            System.exit(1);
+        }
+        DBRouterConfig dbRouterConfig = new DBRouterConfig(Integer.parseInt(args[1]), Integer.parseInt(args[2]), null, args[0]);
+        if (args.length > 4) {
+            dbRouterConfig.setWeights(parseWeights(args[4]));
+        }
+        IDBRouterStrategy strategy = createStrategy(args[0], dbRouterConfig);
+
+        RouterDistributionReport report = new RouterDistributionReport(dbRouterConfig.getDbCount(), dbRouterConfig.getTbCount(), dbRouterConfig.getWeightedSlots());
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[3]), StandardCharsets.UTF_8)) {
+            String key;
+            while (null != (key = reader.readLine())) {
+                key = key.trim();
+                if (!key.isEmpty()) {
+                    report.route(strategy, key);
+                }
+            }
+        }
+        report.print(System.out, args[0]);
+    }
+
+    /**
+     * db01=1,db02=4 -> {db01=1, db02=4}
+     */
+    public static Map<String, Integer> parseWeights(String weights) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String weight : weights.split(",")) {
+            String[] pair = weight.trim().split("=");
+            if (2 != pair.length) {
+                throw new IllegalArgumentException("illegal weight: " + weight + ", expected db01=1");
+            }
+            result.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return result;
+    }
+
+    public static IDBRouterStrategy createStrategy(String name, DBRouterConfig dbRouterConfig) {
+        if (RouterStrategyEnum.MOD.getStrategy().equals(name)) {
+            return new DBRouterStrategyMod(dbRouterConfig);
+        }
+        if (RouterStrategyEnum.HASH.getStrategy().equals(name)) {
+            return new DBRouterStrategyHashCode(dbRouterConfig);
+        }
+        if (RouterStrategyEnum.MURMUR.getStrategy().equals(name)) {
+            return new DBRouterStrategyMurmur(dbRouterConfig);
+        }
+        if (RouterStrategyEnum.JUMP.getStrategy().equals(name)) {
+            return new DBRouterStrategyJump(dbRouterConfig);
+        }
+        throw new IllegalArgumentException("unknown router strategy: " + name);
+    }
+
+    /**
+     * 路由一个 key 并计数
+     */
+    public void route(IDBRouterStrategy strategy, String key) {
+        try {
+            strategy.doRouter(key);
+            int dbIdx = Integer.parseInt(DBContextHolder.getDBKey());
+            int tbIdx = Integer.parseInt(DBContextHolder.getTBKey());
+            counts[(dbIdx - 1) * tbCount + tbIdx]++;
+            total++;
+        } finally {
+            strategy.clear();
+        }
+    }
+
+    /**
+     * 卡方统计量，自由度为表数 - 1；数值越接近自由度越均匀（权重为 0 的库不参与）
+     */
+    public double chiSquare() {
+        double chiSquare = 0;
+        for (int i = 0; i < counts.length; i++) {
+            double expected = expected(i);
+            if (0 == expected) {
+                continue;
+            }
+            double diff = counts[i] - expected;
+            chiSquare += diff * diff / expected;
+        }
+        return chiSquare;
+    }
+
+    /**
+     * 第 i 张物理表按权重应该分到的 key 数量
+     */
+    private double expected(int i) {
+        return total * expectedShares[i / tbCount] / tbCount;
+    }
+
+    /**
+     * 卡方检验的 p 值（Wilson-Hilferty 近似），小于 0.01 基本可以认为分布不均匀
+     */
+    public double pValue() {
+        int df = counts.length - 1;
+        if (0 == df || 0 == total) {
+            return 1D;
+        }
+        double z = (Math.cbrt(chiSquare() / df) - (1 - 2D / (9 * df))) / Math.sqrt(2D / (9 * df));
+        return 1 - normalCdf(z);
+    }
+
+    public long[] getCounts() {
+        return counts.clone();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void print(PrintStream out, String strategyName) {
+        out.printf("strategy=%s dbCount=%d tbCount=%d keys=%d expected/table=%.2f%n", strategyName, dbCount, tbCount, total, (double) total / counts.length);
+        out.println("table          count      skew");
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        double maxRatio = 0;
+        double minRatio = Double.MAX_VALUE;
+        int empty = 0;
+        for (int i = 0; i < counts.length; i++) {
+            int dbIdx = i / tbCount + 1;
+            int tbIdx = i % tbCount;
+            double expected = expected(i);
+            out.printf("db%02d.tb_%03d %10d %+8.2f%%%n", dbIdx, tbIdx, counts[i], 0 == expected ? 0 : (counts[i] - expected) * 100 / expected);
+            min = Math.min(min, counts[i]);
+            max = Math.max(max, counts[i]);
+            if (0 != expected) {
+                maxRatio = Math.max(maxRatio, counts[i] / expected);
+                minRatio = Math.min(minRatio, counts[i] / expected);
+            }
+            if (0 == counts[i]) {
+                empty++;
+            }
+        }
+        out.println("db     share  expected");
+        for (int db = 0; db < dbCount; db++) {
+            long dbTotal = 0;
+            for (int tb = 0; tb < tbCount; tb++) {
+                dbTotal += counts[db * tbCount + tb];
+            }
+            out.printf("db%02d %7.2f%% %8.2f%%%n", db + 1, 0 == total ? 0 : dbTotal * 100D / total, expectedShares[db] * 100);
+        }
+        out.printf("empty tables=%d min=%d max=%d max/expected=%.3f min/expected=%.3f%n", empty, min, max,
+                maxRatio, Double.MAX_VALUE == minRatio ? 0 : minRatio);
+        out.printf("chi-square=%.2f df=%d p-value=%.4f%n", chiSquare(), counts.length - 1, pValue());
+    }
+
+    /**
+     * 标准正态分布的累积分布函数（Abramowitz-Stegun 26.2.17）
+     */
+    private static double normalCdf(double z) {
+        double t = 1 / (1 + 0.2316419 * Math.abs(z));
+        double d = 0.3989422804014327 * Math.exp(-z * z / 2);
+        double p = d * t * (0.319381530 + t * (-0.356563782 + t * (1.781477937 + t * (-1.821255978 + t * 1.330274429))));
+        return z > 0 ? 1 - p : p;
+    }
+
+}
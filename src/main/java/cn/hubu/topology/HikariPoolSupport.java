@@ -0,0 +1,33 @@
+package cn.hubu.topology;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description Hikari 相关的代码集中在这里，只有 classpath 中有 HikariCP 时才会加载这个类，
+ * 排除了 HikariCP（例如使用 Druid、DBCP）的应用不会因为 NoClassDefFoundError 启动失败
+ */
+final class HikariPoolSupport {
+
+    static final boolean PRESENT = ClassUtils.isPresent("com.zaxxer.hikari.HikariDataSource", HikariPoolSupport.class.getClassLoader());
+
+    private HikariPoolSupport() {
+    }
+
+    /**
+     * 连接池的活跃连接数，不是 Hikari 或者连接池还没有启动时返回 0
+     */
+    static int activeConnections(DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return 0;
+        }
+        HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+        return null == pool ? 0 : pool.getActiveConnections();
+    }
+
+}
@@ -0,0 +1,128 @@
+package cn.hubu.topology;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 不可变的路由拓扑快照：库表数量、每个分片的数据源及其配置
+ * 刷新时构建新的快照并一次性替换，正在执行的路由调用固定使用开始时的快照（pins 记录还有多少调用在用它）
+ */
+public class ShardingTopology {
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private final long version;
+
+    private final int dbCount;
+
+    private final int tbCount;
+
+    /**
+     * db01 -> 数据源
+     */
+    private final Map<String, DataSource> dataSources;
+
+    /**
+     * db01 -> yml 中的配置，用于判断刷新时数据源是否可以复用
+     */
+    private final Map<String, Map<String, Object>> dataSourceProps;
+
+    private final DataSource defaultDataSource;
+
+    private final Map<String, Object> defaultDataSourceProps;
+
+    private final AtomicInteger pins = new AtomicInteger();
+
+    public ShardingTopology(int dbCount, int tbCount, Map<String, DataSource> dataSources, Map<String, Map<String, Object>> dataSourceProps,
+                            DataSource defaultDataSource, Map<String, Object> defaultDataSourceProps) {
+        this.version = VERSION.incrementAndGet();
+        this.dbCount = dbCount;
+        this.tbCount = tbCount;
+        this.dataSources = Collections.unmodifiableMap(new LinkedHashMap<>(dataSources));
+        this.dataSourceProps = Collections.unmodifiableMap(new LinkedHashMap<>(dataSourceProps));
+        this.defaultDataSource = defaultDataSource;
+        this.defaultDataSourceProps = defaultDataSourceProps;
+    }
+
+    /**
+     * 根据 DynamicDataSource 的 lookupKey 找数据源，找不到时使用默认数据源
+     */
+    public DataSource resolve(Object lookupKey) {
+        DataSource dataSource = dataSources.get(lookupKey);
+        return null == dataSource ? defaultDataSource : dataSource;
+    }
+
+    /**
+     * 和另一个拓扑的库表数量、数据源是否完全一致
+     */
+    public boolean sameAs(ShardingTopology other) {
+        if (null == other || dbCount != other.dbCount || tbCount != other.tbCount || defaultDataSource != other.defaultDataSource
+                || !dataSources.keySet().equals(other.dataSources.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, DataSource> entry : dataSources.entrySet()) {
+            if (entry.getValue() != other.dataSources.get(entry.getKey())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 配置没有变化的数据源直接复用，不重建连接池
+     */
+    DataSource reusable(String name, Map<String, Object> props) {
+        return Objects.equals(dataSourceProps.get(name), props) ? dataSources.get(name) : null;
+    }
+
+    DataSource reusableDefault(Map<String, Object> props) {
+        return Objects.equals(defaultDataSourceProps, props) ? defaultDataSource : null;
+    }
+
+    public int pin() {
+        return pins.incrementAndGet();
+    }
+
+    public int unpin() {
+        return pins.decrementAndGet();
+    }
+
+    /**
+     * 还有多少正在执行的路由调用固定在这个快照上
+     */
+    public int getPins() {
+        return pins.get();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getDbCount() {
+        return dbCount;
+    }
+
+    public int getTbCount() {
+        return tbCount;
+    }
+
+    public Map<String, DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    public DataSource getDefaultDataSource() {
+        return defaultDataSource;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardingTopology{version=" + version + ", dbCount=" + dbCount + ", tbCount=" + tbCount + ", dataSources=" + dataSources.keySet() + "}";
+    }
+}
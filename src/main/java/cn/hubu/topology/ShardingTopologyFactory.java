@@ -0,0 +1,120 @@
+package cn.hubu.topology;
+
+import cn.hubu.util.PropertyUtil;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 根据 yml 配置构建路由拓扑，刷新时配置没变的数据源直接复用上一个拓扑中的实例
+ */
+public class ShardingTopologyFactory {
+
+    private static final String PREFIX = "db-sharding.jdbc.datasource.";
+
+    private ShardingTopologyFactory() {
+    }
+
+    /**
+     * 从 Environment 中读取 db-sharding.jdbc.datasource 配置构建拓扑
+     *
+     * @param environment 配置
+     * @param previous    上一个拓扑，没有时为 null
+     */
+    public static ShardingTopology fromEnvironment(Environment environment, ShardingTopology previous) {
+        int dbCount = Integer.parseInt(environment.getRequiredProperty(PREFIX + "dbCount"));
+        int tbCount = Integer.parseInt(environment.getRequiredProperty(PREFIX + "tbCount"));
+
+        Map<String, Map<String, Object>> dataSourceProps = new LinkedHashMap<>();
+        for (String dbInfo : environment.getRequiredProperty(PREFIX + "list").split(",")) {
+            dbInfo = dbInfo.trim();
+            dataSourceProps.put(dbInfo, dataSourceProps(environment, dbInfo));
+        }
+        Map<String, Object> defaultProps = dataSourceProps(environment, environment.getRequiredProperty(PREFIX + "defaultDb"));
+
+        // 路由时按 db01、db02... 查找数据源，缺少的库会被路由到默认数据源上，这里直接拒绝
+        for (int dbIdx = 1; dbIdx <= dbCount; dbIdx++) {
+            String name = String.format("db%02d", dbIdx);
+            if (!dataSourceProps.containsKey(name)) {
+                throw new IllegalStateException("dbCount is " + dbCount + " but datasource " + name + " is not in list " + dataSourceProps.keySet());
+            }
+        }
+        return create(dbCount, tbCount, dataSourceProps, defaultProps, previous);
+    }
+
+    /**
+     * 读取各库的权重 db-sharding.jdbc.datasource.weights，没有配置时返回空 Map（所有库权重为 1）
+     */
+    public static Map<String, Integer> weights(Environment environment) {
+        return Binder.get(environment).bind(PREFIX + "weights", Bindable.mapOf(String.class, Integer.class)).orElseGet(LinkedHashMap::new);
+    }
+
+    /**
+     * 根据已经解析好的配置构建拓扑
+     */
+    public static ShardingTopology create(int dbCount, int tbCount, Map<String, Map<String, Object>> dataSourceProps,
+                                          Map<String, Object> defaultProps, ShardingTopology previous) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : dataSourceProps.entrySet()) {
+            DataSource reusable = null == previous ? null : previous.reusable(entry.getKey(), entry.getValue());
+            dataSources.put(entry.getKey(), null != reusable ? reusable : createDataSource(entry.getKey(), entry.getValue()));
+        }
+        DataSource defaultDataSource = null == previous ? null : previous.reusableDefault(defaultProps);
+        if (null == defaultDataSource) {
+            defaultDataSource = createDataSource("default", defaultProps);
+        }
+        return new ShardingTopology(dbCount, tbCount, dataSources, dataSourceProps, defaultDataSource, defaultProps);
+    }
+
+    /**
+     * 创建单个数据源
+     * 没有配置 type 时使用 DriverManagerDataSource（不带连接池）；
+     * 配置了 type（例如 com.zaxxer.hikari.HikariDataSource）时创建对应的连接池，同级的其它配置（maximum-pool-size 等）绑定到连接池上
+     *
+     * @param name  数据源名称，作为连接池名称
+     * @param props yml 中该数据源的配置
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static DataSource createDataSource(String name, Map<String, Object> props) {
+        Object type = props.get("type");
+        if (null == type) {
+            return new DriverManagerDataSource(props.get("url").toString(), props.get("username").toString(), props.get("password").toString());
+        }
+        Class<? extends DataSource> dataSourceType;
+        try {
+            dataSourceType = (Class<? extends DataSource>) Class.forName(type.toString());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("datasource type not found: " + type, e);
+        }
+        Object driverClassName = props.get("driver-class-name");
+        DataSource dataSource = DataSourceBuilder.create()
+                .type(dataSourceType)
+                .driverClassName(null == driverClassName ? null : driverClassName.toString())
+                .url(props.get("url").toString())
+                .username(props.get("username").toString())
+                .password(props.get("password").toString())
+                .build();
+        // 连接池名称也通过 Binder 绑定，有 poolName 属性的连接池（例如 Hikari）才会生效，不直接依赖具体的连接池类
+        Map<String, Object> bindProps = new LinkedHashMap<>(props);
+        bindProps.putIfAbsent("pool-name", name);
+        new Binder(new MapConfigurationPropertySource(bindProps)).bind(ConfigurationPropertyName.EMPTY, Bindable.ofInstance(dataSource));
+        return dataSource;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> dataSourceProps(Environment environment, String name) {
+        return PropertyUtil.handle(environment, PREFIX + name, Map.class);
+    }
+
+}
@@ -0,0 +1,280 @@
+package cn.hubu.topology;
+
+import cn.hubu.dynamic.DynamicDataSource;
+import cn.hubu.properties.DBRouterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.PropertiesPropertySourceLoader;
+import org.springframework.boot.env.PropertySourceLoader;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.FileSystemResource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 运行时刷新路由拓扑
+ * 触发方式：Spring Cloud 的 EnvironmentChangeEvent、监听本地配置文件、直接调用 refresh()
+ * 新拓扑在调用线程上构建好（热路径之外），然后一次性替换；被替换掉的连接池等到没有调用固定在旧拓扑上、且没有活跃连接后再关闭
+ */
+public class ShardingTopologyRefresher implements ApplicationListener<ApplicationEvent>, InitializingBean, DisposableBean {
+
+    private static final String ENVIRONMENT_CHANGE_EVENT = "org.springframework.cloud.context.environment.EnvironmentChangeEvent";
+
+    private final Logger logger = LoggerFactory.getLogger(ShardingTopologyRefresher.class);
+
+    private final DynamicDataSource dynamicDataSource;
+
+    private final DBRouterConfig dbRouterConfig;
+
+    private final Environment environment;
+
+    /**
+     * 监听的本地配置文件（yml 或 properties），为空时不监听
+     */
+    private final String watchFile;
+
+    /**
+     * 旧连接池最长等待多久后强制关闭
+     */
+    private final long drainTimeoutMillis;
+
+    /**
+     * 文件监听和旧连接池的回收都在后台线程上执行
+     */
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "db-sharding-topology-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile WatchService watchService;
+
+    public ShardingTopologyRefresher(DynamicDataSource dynamicDataSource, DBRouterConfig dbRouterConfig, Environment environment,
+                                     String watchFile, long drainTimeoutMillis) {
+        this.dynamicDataSource = dynamicDataSource;
+        this.dbRouterConfig = dbRouterConfig;
+        this.environment = environment;
+        this.watchFile = watchFile;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+    }
+
+    /**
+     * 按当前 Environment 刷新拓扑
+     */
+    public ShardingTopology refresh() {
+        return refresh(environment);
+    }
+
+    /**
+     * 按给定配置刷新拓扑，配置没有变化时什么都不做
+     *
+     * @return 刷新之后生效的拓扑
+     */
+    public synchronized ShardingTopology refresh(Environment source) {
+        ShardingTopology current = dynamicDataSource.getTopology();
+        ShardingTopology next = ShardingTopologyFactory.fromEnvironment(source, current);
+        // 修改权重会改变已有数据的落点，运行时切换会让已有数据查不到，只能迁移数据后重启生效
+        Map<String, Integer> weights = ShardingTopologyFactory.weights(source);
+        if (!sameWeights(weights, dbRouterConfig.getWeights())) {
+            logger.error("分库权重不支持运行时刷新，继续使用 {}，新的权重 {} 需要迁移数据后重启生效", dbRouterConfig.getWeights(), weights);
+        }
+        if (next.sameAs(current)) {
+            return current;
+        }
+        // DBRouterConfig 的库表数量直接读取发布的拓扑，发布即生效
+        ShardingTopology previous = dynamicDataSource.publish(next);
+        logger.info("路由拓扑已刷新 {} -> {}", previous, next);
+        if (null != previous) {
+            List<DataSource> retired = retired(previous, next);
+            if (!retired.isEmpty()) {
+                executor.execute(() -> drain(previous, retired));
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 没有配置的库权重为 1，{db01=1} 和 {} 是相同的权重
+     */
+    private static boolean sameWeights(Map<String, Integer> left, Map<String, Integer> right) {
+        Set<String> dbs = new HashSet<>(left.keySet());
+        dbs.addAll(right.keySet());
+        for (String db : dbs) {
+            if (left.getOrDefault(db, 1).intValue() != right.getOrDefault(db, 1).intValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        // 按类名判断，避免引入 Spring Cloud 依赖
+        if (ENVIRONMENT_CHANGE_EVENT.equals(event.getClass().getName())) {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                logger.error("路由拓扑刷新失败，继续使用当前拓扑", e);
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (null == watchFile || watchFile.trim().isEmpty()) {
+            return;
+        }
+        Path file = Paths.get(watchFile).toAbsolutePath();
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        executor.execute(() -> watch(file));
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (null != watchService) {
+            watchService.close();
+        }
+        executor.shutdownNow();
+    }
+
+    private void watch(Path file) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    try {
+                        refresh(load(file));
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("路由拓扑刷新失败，继续使用当前拓扑 file={}", file, e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 容器关闭
+        }
+    }
+
+    /**
+     * 文件中的配置覆盖应用原有的配置
+     */
+    private Environment load(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        PropertySourceLoader loader = name.endsWith(".properties") ? new PropertiesPropertySourceLoader() : new YamlPropertySourceLoader();
+        StandardEnvironment fileEnvironment = new StandardEnvironment();
+        MutablePropertySources propertySources = fileEnvironment.getPropertySources();
+        List<PropertySource<?>> fileSources = loader.load("db-sharding-watch-file", new FileSystemResource(file.toFile()));
+        for (int i = fileSources.size() - 1; i >= 0; i--) {
+            propertySources.addFirst(fileSources.get(i));
+        }
+        if (environment instanceof ConfigurableEnvironment) {
+            for (PropertySource<?> propertySource : ((ConfigurableEnvironment) environment).getPropertySources()) {
+                if (!propertySources.contains(propertySource.getName())) {
+                    propertySources.addLast(propertySource);
+                }
+            }
+        }
+        ConfigurationPropertySources.attach(fileEnvironment);
+        return fileEnvironment;
+    }
+
+    /**
+     * 旧拓扑中有、新拓扑中没有再使用的数据源
+     */
+    private List<DataSource> retired(ShardingTopology previous, ShardingTopology next) {
+        Set<DataSource> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+        inUse.addAll(next.getDataSources().values());
+        inUse.add(next.getDefaultDataSource());
+        Set<DataSource> retired = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (DataSource dataSource : previous.getDataSources().values()) {
+            if (!inUse.contains(dataSource)) {
+                retired.add(dataSource);
+            }
+        }
+        if (!inUse.contains(previous.getDefaultDataSource())) {
+            retired.add(previous.getDefaultDataSource());
+        }
+        return new ArrayList<>(retired);
+    }
+
+    /**
+     * 等待旧拓扑上的调用结束、连接归还后关闭连接池，超时后强制关闭
+     */
+    private void drain(ShardingTopology previous, List<DataSource> retired) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+        try {
+            while (System.nanoTime() < deadline && (previous.getPins() > 0 || activeConnections(retired) > 0)) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (previous.getPins() > 0 || activeConnections(retired) > 0) {
+            logger.warn("旧路由拓扑 {} 等待超时，强制关闭 pins={}", previous, previous.getPins());
+        }
+        for (DataSource dataSource : retired) {
+            if (dataSource instanceof Closeable) {
+                try {
+                    ((Closeable) dataSource).close();
+                } catch (IOException e) {
+                    logger.warn("关闭数据源失败 {}", dataSource, e);
+                }
+            }
+        }
+        logger.info("旧路由拓扑 {} 已回收 {} 个数据源", previous, retired.size());
+    }
+
+    /**
+     * 目前只能读到 Hikari 的活跃连接数，其它连接池只按 pins 等待
+     */
+    private int activeConnections(List<DataSource> dataSources) {
+        if (!HikariPoolSupport.PRESENT) {
+            return 0;
+        }
+        int active = 0;
+        for (DataSource dataSource : dataSources) {
+            active += HikariPoolSupport.activeConnections(dataSource);
+        }
+        return active;
+    }
+
+}
@@ -0,0 +1,83 @@
+package cn.hubu.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 单张物理表（db01.user_003）上的 SQL 累计统计
+ */
+public class ShardSqlStats {
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder slow = new LongAdder();
+
+    private final LongAdder connectionWaitNanos = new LongAdder();
+
+    private final LongAdder prepareNanos = new LongAdder();
+
+    private final LongAdder executeNanos = new LongAdder();
+
+    private final LongAdder fetchNanos = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 最近一次失败的异常
+     */
+    private volatile String lastError;
+
+    void record(SqlTrace trace, long elapsedNanos, boolean isSlow) {
+        count.increment();
+        if (trace.failed) {
+            errors.increment();
+            lastError = trace.error;
+        }
+        if (isSlow) {
+            slow.increment();
+        }
+        connectionWaitNanos.add(trace.connectionWaitNanos());
+        prepareNanos.add(trace.prepareNanos);
+        executeNanos.add(trace.executeNanos);
+        fetchNanos.add(trace.fetchNanos);
+        totalNanos.add(elapsedNanos);
+        rows.add(trace.rows);
+        maxNanos.accumulate(elapsedNanos);
+    }
+
+    /**
+     * 各阶段的平均耗时（毫秒）以及累计行数
+     */
+    public Map<String, Object> snapshot() {
+        long n = count.sum();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", n);
+        snapshot.put("errors", errors.sum());
+        snapshot.put("lastError", lastError);
+        snapshot.put("slow", slow.sum());
+        snapshot.put("avgConnectionWaitMillis", avgMillis(connectionWaitNanos, n));
+        snapshot.put("avgPrepareMillis", avgMillis(prepareNanos, n));
+        snapshot.put("avgExecuteMillis", avgMillis(executeNanos, n));
+        snapshot.put("avgFetchMillis", avgMillis(fetchNanos, n));
+        snapshot.put("avgTotalMillis", avgMillis(totalNanos, n));
+        snapshot.put("maxTotalMillis", TimeUnit.NANOSECONDS.toMicros(maxNanos.get()) / 1000D);
+        snapshot.put("rows", rows.sum());
+        return snapshot;
+    }
+
+    private static double avgMillis(LongAdder nanos, long n) {
+        return 0 == n ? 0D : TimeUnit.NANOSECONDS.toMicros(nanos.sum() / n) / 1000D;
+    }
+
+}
@@ -0,0 +1,109 @@
+package cn.hubu.trace;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 一条慢查询记录，sql 为替换表名之后真正执行的 SQL
+ */
+public class SlowSqlRecord {
+
+    private final long timestamp;
+
+    private final String statementId;
+
+    private final String shard;
+
+    private final String sql;
+
+    private final double totalMillis;
+
+    private final double connectionWaitMillis;
+
+    private final double prepareMillis;
+
+    private final double executeMillis;
+
+    private final double fetchMillis;
+
+    private final long rows;
+
+    private final boolean failed;
+
+    private final String error;
+
+    SlowSqlRecord(SqlTrace trace, long elapsedNanos) {
+        this.timestamp = System.currentTimeMillis();
+        this.statementId = trace.statementId;
+        this.shard = trace.shard();
+        this.sql = trace.sql;
+        this.totalMillis = millis(elapsedNanos);
+        this.connectionWaitMillis = millis(trace.connectionWaitNanos());
+        this.prepareMillis = millis(trace.prepareNanos);
+        this.executeMillis = millis(trace.executeNanos);
+        this.fetchMillis = millis(trace.fetchNanos);
+        this.rows = trace.rows;
+        this.failed = trace.failed;
+        this.error = trace.error;
+    }
+
+    private static double millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000D;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getShard() {
+        return shard;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public double getConnectionWaitMillis() {
+        return connectionWaitMillis;
+    }
+
+    public double getPrepareMillis() {
+        return prepareMillis;
+    }
+
+    public double getExecuteMillis() {
+        return executeMillis;
+    }
+
+    public double getFetchMillis() {
+        return fetchMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + shard + "] " + statementId + " total=" + totalMillis + "ms (connWait=" + connectionWaitMillis
+                + "ms, prepare=" + prepareMillis + "ms, execute=" + executeMillis + "ms, fetch=" + fetchMillis
+                + "ms) rows=" + rows + (failed ? " FAILED " + error : "") + " sql=" + sql;
+    }
+}
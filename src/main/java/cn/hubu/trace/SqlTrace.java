@@ -0,0 +1,56 @@
+package cn.hubu.trace;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 一次 Executor 调用的追踪上下文，只在当前线程内使用
+ */
+public class SqlTrace {
+
+    String statementId;
+
+    long startNanos;
+
+    /**
+     * StatementHandler.prepare 开始的时间，此时连接已经拿到
+     */
+    long prepareStartNanos;
+
+    long prepareNanos;
+
+    long executeNanos;
+
+    long fetchNanos;
+
+    long rows;
+
+    String db;
+
+    String table;
+
+    String sql;
+
+    boolean failed;
+
+    /**
+     * 失败时的异常，例如获取连接失败、熔断打开
+     */
+    String error;
+
+    SqlTrace(String statementId, long startNanos) {
+        this.statementId = statementId;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 获取连接的等待时间：从进入 Executor 到开始 prepare 之间
+     */
+    long connectionWaitNanos() {
+        return 0 == prepareStartNanos ? 0 : prepareStartNanos - startNanos;
+    }
+
+    public String shard() {
+        return db + "." + table;
+    }
+
+}
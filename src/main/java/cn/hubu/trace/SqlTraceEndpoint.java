@@ -0,0 +1,33 @@
+package cn.hubu.trace;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description actuator 端点 /actuator/shardsql，查看各物理库表的 SQL 统计和最近的慢查询
+ */
+@Endpoint(id = "shardsql")
+public class SqlTraceEndpoint {
+
+    private final SqlTraceRecorder sqlTraceRecorder;
+
+    public SqlTraceEndpoint(SqlTraceRecorder sqlTraceRecorder) {
+        this.sqlTraceRecorder = sqlTraceRecorder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> report() {
+        return sqlTraceRecorder.report();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlTraceRecorder.reset();
+    }
+
+}
@@ -0,0 +1,205 @@
+package cn.hubu.trace;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.properties.SqlTraceConfig;
+import cn.hubu.util.ShardSqlUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片 SQL 追踪记录器：按物理库表汇总各阶段耗时，超过阈值的语句写入慢查询日志和环形缓冲区
+ */
+public class SqlTraceRecorder {
+
+    private final Logger logger = LoggerFactory.getLogger("cn.hubu.slow-sql");
+
+    private final ThreadLocal<SqlTrace> currentTrace = new ThreadLocal<>();
+
+    private final SqlTraceConfig config;
+
+    private final long slowThresholdNanos;
+
+    /**
+     * db01.user_003 -> 统计
+     */
+    private final Map<String, ShardSqlStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * 最近的慢查询，环形覆盖
+     */
+    private final AtomicReferenceArray<SlowSqlRecord> slowLog;
+
+    private final AtomicLong slowSequence = new AtomicLong();
+
+    public SqlTraceRecorder(SqlTraceConfig config) {
+        this.config = config;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getSlowThresholdMillis());
+        this.slowLog = new AtomicReferenceArray<>(Math.max(1, config.getSlowLogCapacity()));
+    }
+
+    /**
+     * Executor.query / update 开始，按采样率决定是否追踪
+     *
+     * @return 是否由本次调用开启了追踪，只有开启者负责 end
+     */
+    public boolean begin(String statementId) {
+        // 嵌套的 Executor 调用（例如嵌套查询）算在外层追踪里
+        if (null != currentTrace.get()) {
+            return false;
+        }
+        if (config.getSampleRate() < 1.0 && ThreadLocalRandom.current().nextDouble() >= config.getSampleRate()) {
+            return false;
+        }
+        currentTrace.set(new SqlTrace(statementId, System.nanoTime()));
+        return true;
+    }
+
+    /**
+     * StatementHandler.prepare 开始，连接已经拿到
+     */
+    public long prepareStart() {
+        long now = System.nanoTime();
+        SqlTrace trace = currentTrace.get();
+        if (null != trace && 0 == trace.prepareStartNanos) {
+            trace.prepareStartNanos = now;
+        }
+        return now;
+    }
+
+    public void prepareEnd(long startNanos) {
+        SqlTrace trace = currentTrace.get();
+        if (null != trace) {
+            trace.prepareNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * StatementHandler.query / update 结束，耗时包含执行和取数，取数部分在 fetch 中单独累计
+     *
+     * @param sql 替换表名之后的 SQL
+     */
+    public void executeEnd(long startNanos, String sql) {
+        SqlTrace trace = currentTrace.get();
+        if (null == trace) {
+            return;
+        }
+        trace.executeNanos += System.nanoTime() - startNanos;
+        if (null == trace.sql) {
+            trace.sql = sql;
+            List<String> tables = ShardSqlUtil.tableNames(sql);
+            trace.table = tables.isEmpty() ? "unknown" : tables.get(0);
+        }
+    }
+
+    public void fetchEnd(long startNanos) {
+        SqlTrace trace = currentTrace.get();
+        if (null != trace) {
+            trace.fetchNanos += System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * 追踪结束，汇总并判断是否为慢查询
+     *
+     * @param result Executor 的返回值，用于计算行数
+     * @param error  抛出的异常，成功时为 null
+     * @param table  执行前就失败（没有 SQL）时记录到的表，例如 user_003；成功时不需要
+     */
+    public void end(Object result, Throwable error, String table) {
+        SqlTrace trace = currentTrace.get();
+        currentTrace.remove();
+        if (null == trace) {
+            return;
+        }
+        boolean failed = null != error;
+        if (null == trace.sql) {
+            // 没有真正执行 SQL（例如命中了缓存）的成功调用不统计；
+            // 执行前就失败（获取连接失败、熔断打开等）的调用按路由到的库表记录
+            if (!failed) {
+                return;
+            }
+            trace.table = null == table ? "unknown" : table;
+        }
+        long elapsedNanos = System.nanoTime() - trace.startNanos;
+        trace.failed = failed;
+        if (failed) {
+            trace.error = error.toString();
+            if (0 == trace.prepareStartNanos) {
+                // 没有走到 prepare，整段时间都在等连接
+                trace.prepareStartNanos = trace.startNanos + elapsedNanos;
+            }
+        }
+        // fetch 是在 execute 内部发生的，这里扣掉
+        trace.executeNanos = Math.max(0, trace.executeNanos - trace.fetchNanos);
+        if (result instanceof Collection) {
+            trace.rows = ((Collection<?>) result).size();
+        } else if (result instanceof Number) {
+            trace.rows = ((Number) result).longValue();
+        }
+        String dbKey = DBContextHolder.getDBKey();
+        trace.db = null == dbKey ? "default" : "db" + dbKey;
+
+        boolean isSlow = elapsedNanos >= slowThresholdNanos;
+        stats.computeIfAbsent(trace.shard(), key -> new ShardSqlStats()).record(trace, elapsedNanos, isSlow);
+        if (isSlow) {
+            SlowSqlRecord record = new SlowSqlRecord(trace, elapsedNanos);
+            slowLog.set((int) (slowSequence.getAndIncrement() % slowLog.length()), record);
+            logger.warn("慢查询 {}", record);
+        }
+    }
+
+    /**
+     * 各物理库表的统计
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        stats.forEach((shard, shardStats) -> snapshot.put(shard, shardStats.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * 最近的慢查询，新的在前
+     */
+    public List<SlowSqlRecord> recentSlowQueries() {
+        List<SlowSqlRecord> records = new ArrayList<>(slowLog.length());
+        long last = slowSequence.get();
+        for (long seq = last - 1; seq >= 0 && seq >= last - slowLog.length(); seq--) {
+            SlowSqlRecord record = slowLog.get((int) (seq % slowLog.length()));
+            if (null != record) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("slowThresholdMillis", config.getSlowThresholdMillis());
+        report.put("sampleRate", config.getSampleRate());
+        report.put("shards", stats());
+        report.put("slowQueries", recentSlowQueries());
+        return report;
+    }
+
+    public void reset() {
+        stats.clear();
+        for (int i = 0; i < slowLog.length(); i++) {
+            slowLog.set(i, null);
+        }
+    }
+
+}
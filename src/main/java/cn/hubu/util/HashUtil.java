@@ -0,0 +1,138 @@
+package cn.hubu.util;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 路由用的哈希函数，全部无状态、不分配对象
+ * murmur3_32：MurmurHash3 x86_32，直接按 UTF-16 字符计算，不需要 getBytes
+ * fmix64：MurmurHash3 的 64 位终结混合，用于数字类型的路由键
+ * jumpConsistentHash：Lamping & Veach 的 Jump Consistent Hash
+ */
+public class HashUtil {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private HashUtil() {
+    }
+
+    /**
+     * MurmurHash3 x86_32，每两个 char 组成一个 4 字节块，等价于对 UTF-16LE 字节计算
+     */
+    public static int murmur3_32(CharSequence input, int seed) {
+        int h1 = seed;
+        int length = input.length();
+        for (int i = 1; i < length; i += 2) {
+            int k1 = input.charAt(i - 1) | (input.charAt(i) << 16);
+            h1 = mixH1(h1, mixK1(k1));
+        }
+        if ((length & 1) == 1) {
+            h1 ^= mixK1(input.charAt(length - 1));
+        }
+        return fmix32(h1 ^ (2 * length));
+    }
+
+    /**
+     * MurmurHash3 的 64 位终结混合，输入的每一位都会影响输出的每一位
+     */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Jump Consistent Hash：把 64 位 key 映射到 [0, buckets)，桶数变化时只有约 1/buckets 的 key 需要迁移
+     */
+    public static int jumpConsistentHash(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * 把 32 位哈希均匀地映射到 [0, size)，size 不要求是 2 的幂（Lemire 乘法取高位）
+     */
+    public static int reduce(int hash, int size) {
+        return (int) (((hash & 0xffffffffL) * size) >>> 32);
+    }
+
+    /**
+     * 路由键是否是十进制整数（long 范围内），数字键走 fmix64，避免按字符计算
+     */
+    public static boolean isLong(String value) {
+        int length = value.length();
+        if (0 == length || length > 20) {
+            return false;
+        }
+        int i = '-' == value.charAt(0) ? 1 : 0;
+        int digits = length - i;
+        if (0 == digits || digits > 19) {
+            return false;
+        }
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        // 19 位时可能溢出，交给 parseLong 兜底
+        if (19 == digits) {
+            try {
+                Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 路由键的 64 位哈希：数字键直接混合数值，其它按字符计算 murmur3 后再混合
+     */
+    public static long hash64(String value) {
+        if (isLong(value)) {
+            return fmix64(Long.parseLong(value));
+        }
+        return fmix64(murmur3_32(value, 0) & 0xffffffffL);
+    }
+
+    /**
+     * 数字路由键的 64 位哈希，与 hash64(Long.toString(value)) 结果相同，但不需要生成字符串
+     */
+    public static long hash64(long value) {
+        return fmix64(value);
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1;
+        k1 = Integer.rotateLeft(k1, 15);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static int mixH1(int h1, int k1) {
+        h1 ^= k1;
+        h1 = Integer.rotateLeft(h1, 13);
+        h1 = h1 * 5 + 0xe6546b64;
+        return h1;
+    }
+
+    private static int fmix32(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+}
@@ -0,0 +1,40 @@
+package cn.hubu.util;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 路由键格式化：库 %02d、表 %03d。常用范围内的字符串预先生成，路由时不再调用 String.format
+ */
+public class ShardKeyUtil {
+
+    private static final String[] DB_KEYS = new String[100];
+
+    private static final String[] TB_KEYS = new String[1024];
+
+    static {
+        for (int i = 0; i < DB_KEYS.length; i++) {
+            DB_KEYS[i] = String.format("%02d", i);
+        }
+        for (int i = 0; i < TB_KEYS.length; i++) {
+            TB_KEYS[i] = String.format("%03d", i);
+        }
+    }
+
+    private ShardKeyUtil() {
+    }
+
+    /**
+     * 1 -> 01
+     */
+    public static String dbKey(int dbIdx) {
+        return dbIdx >= 0 && dbIdx < DB_KEYS.length ? DB_KEYS[dbIdx] : String.format("%02d", dbIdx);
+    }
+
+    /**
+     * 3 -> 003
+     */
+    public static String tbKey(int tbIdx) {
+        return tbIdx >= 0 && tbIdx < TB_KEYS.length ? TB_KEYS[tbIdx] : String.format("%03d", tbIdx);
+    }
+
+}
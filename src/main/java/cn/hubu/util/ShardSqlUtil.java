@@ -0,0 +1,140 @@
+package cn.hubu.util;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.annotation.DBRouterStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 分片 SQL 工具：解析逻辑表名、判断 Mapper 是否分表、拼出当前路由下的物理表名
+ */
+public class ShardSqlUtil {
+
+    /**
+     * from/into/update 后面的表名，替换物理表和解析表名使用同一个规则
+     */
+    private static final Pattern TABLE_PATTERN = Pattern.compile("(from|into|update)[\\s]{1,}(\\w{1,})", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * join 后面的表名
+     */
+    private static final Pattern JOIN_PATTERN = Pattern.compile("\\bjoin\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * from 后面用逗号连接的表：from a, b 或者 from a x, b y
+     */
+    private static final Pattern FROM_LIST_PATTERN = Pattern.compile("\\bfrom\\s+\\w+((?:\\s+(?:as\\s+)?\\w+)?(?:\\s*,\\s*\\w+(?:\\s+(?:as\\s+)?\\w+)?)+)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern FROM_LIST_ITEM_PATTERN = Pattern.compile(",\\s*(\\w+)");
+
+    /**
+     * MappedStatement id -> 是否分表，避免每次都 Class.forName
+     */
+    private static final Map<String, Boolean> SPLIT_TABLE_CACHE = new ConcurrentHashMap<>();
+
+    private ShardSqlUtil() {
+    }
+
+    /**
+     * 解析 SQL 中 from/into/update 后面的逻辑表名
+     *
+     * @param sql 原始 SQL
+     * @return 表名，按出现顺序去重
+     */
+    public static List<String> tableNames(String sql) {
+        List<String> tables = new ArrayList<>(2);
+        Matcher matcher = TABLE_PATTERN.matcher(sql);
+        while (matcher.find()) {
+            String table = matcher.group(2).toLowerCase();
+            if (!tables.contains(table)) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * 解析 join 以及 from 逗号列表中引用的表，不包括 tableNames 已经返回的表；
+     * 这些表不会被 replaceTable 替换为物理表，查询读取的是它们的逻辑表
+     *
+     * @param sql 原始 SQL
+     * @return 表名，按出现顺序去重
+     */
+    public static List<String> joinedTableNames(String sql) {
+        List<String> primary = tableNames(sql);
+        List<String> tables = new ArrayList<>(2);
+        Matcher matcher = JOIN_PATTERN.matcher(sql);
+        while (matcher.find()) {
+            addTable(tables, primary, matcher.group(1));
+        }
+        matcher = FROM_LIST_PATTERN.matcher(sql);
+        while (matcher.find()) {
+            Matcher item = FROM_LIST_ITEM_PATTERN.matcher(matcher.group(1));
+            while (item.find()) {
+                addTable(tables, primary, item.group(1));
+            }
+        }
+        return tables;
+    }
+
+    private static void addTable(List<String> tables, List<String> exclude, String table) {
+        table = table.toLowerCase();
+        if (!exclude.contains(table) && !tables.contains(table)) {
+            tables.add(table);
+        }
+    }
+
+    /**
+     * 把 SQL 中的逻辑表替换为物理表，USER 替换为 USER_001；JDBC 的 DynamicMybatisPlugin 和 R2DBC 模块共用
+     *
+     * @param sql   原始 SQL
+     * @param tbKey 分表下标，例如 001
+     * @return 替换后的 SQL，没有匹配到表名时原样返回
+     */
+    public static String replaceTable(String sql, String tbKey) {
+        Matcher matcher = TABLE_PATTERN.matcher(sql);
+        if (!matcher.find()) {
+            return sql;
+        }
+        String tableName = matcher.group().trim();
+        return matcher.replaceAll(tableName + "_" + tbKey);
+    }
+
+    /**
+     * Mapper 上是否标注了 @DBRouterStrategy(splitTable = true)
+     *
+     * @param mappedStatementId 例如 com.hubu.xhy.mapper.UserMapper.insert
+     */
+    public static boolean isSplitTable(String mappedStatementId) {
+        return SPLIT_TABLE_CACHE.computeIfAbsent(mappedStatementId, id -> {
+            String className = id.substring(0, id.lastIndexOf("."));
+            try {
+                DBRouterStrategy dbRouterStrategy = Class.forName(className).getAnnotation(DBRouterStrategy.class);
+                return null != dbRouterStrategy && dbRouterStrategy.splitTable();
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        });
+    }
+
+    /**
+     * 当前线程路由下的物理表标识，例如 db01.user_003；未路由时为 default.user
+     *
+     * @param table      逻辑表名
+     * @param splitTable 是否分表
+     */
+    public static String physicalTable(String table, boolean splitTable) {
+        String dbKey = DBContextHolder.getDBKey();
+        String db = null == dbKey ? "default" : "db" + dbKey;
+        String tbKey = DBContextHolder.getTBKey();
+        return splitTable && null != tbKey ? db + "." + table + "_" + tbKey : db + "." + table;
+    }
+
+}
@@ -0,0 +1,375 @@
+package cn.hubu.write;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.annotation.DBRouter;
+import cn.hubu.annotation.DBRouterAsync;
+import cn.hubu.properties.AsyncWriteConfig;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.sql.BatchUpdateException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 按 (语句, 库, 表) 合并 @DBRouterAsync 的写入：调用方把参数放入无锁队列后立即拿到 CompletableFuture，
+ * 写入线程攒够 batchSize 条或者定时器到期后用 BATCH 执行器在一个事务中写入，一批只有一次往返和一次提交。
+ * MySQL 在连接串上加 rewriteBatchedStatements=true 后，驱动会把一批 insert 改写为一条多行 insert
+ */
+public class ShardWriteCoalescer implements SmartInitializingSingleton, DisposableBean {
+
+    private final Logger logger = LoggerFactory.getLogger(ShardWriteCoalescer.class);
+
+    private final SqlSessionFactory sqlSessionFactory;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AsyncWriteConfig config;
+
+    /**
+     * 语句@库.表 -> 队列
+     */
+    private final Map<String, WriteQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * Mapper 方法 -> 参数名解析，和 MyBatis 的 MapperMethod 组装参数的方式一致
+     */
+    private final Map<Method, ParamNameResolver> paramNameResolvers = new ConcurrentHashMap<>();
+
+    private final ExecutorService flusher;
+
+    private final ScheduledExecutorService ticker;
+
+    private volatile boolean closed;
+
+    public ShardWriteCoalescer(SqlSessionFactory sqlSessionFactory, TransactionTemplate transactionTemplate, AsyncWriteConfig config) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.flusher = Executors.newFixedThreadPool(Math.max(1, config.getFlushThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "db-sharding-async-write-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-sharding-async-write-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushMillis = Math.max(1, config.getFlushMillis());
+        this.ticker.scheduleWithFixedDelay(this::flushAll, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交一次写入，调用前已经完成路由
+     *
+     * @param method Mapper 方法
+     * @param args   方法参数
+     * @param dbKey  路由库，例如 01
+     * @param tbKey  路由表，例如 003
+     * @return 写入完成后得到影响行数
+     */
+    public CompletableFuture<Integer> submit(Method method, Object[] args, String dbKey, String tbKey) {
+        String statement = method.getDeclaringClass().getName() + "." + method.getName();
+        Object param = paramNameResolvers.computeIfAbsent(method, key -> new ParamNameResolver(sqlSessionFactory.getConfiguration(), key)).getNamedParams(args);
+        WriteQueue queue = queues.computeIfAbsent(statement + "@" + dbKey + "." + tbKey, key -> new WriteQueue(statement, dbKey, tbKey, batchSize(method)));
+        return queue.offer(param);
+    }
+
+    private int batchSize(Method method) {
+        DBRouterAsync async = method.getAnnotation(DBRouterAsync.class);
+        return null != async && async.batchSize() > 0 ? async.batchSize() : Math.max(1, config.getBatchSize());
+    }
+
+    /**
+     * 所有 Mapper 注册完成后检查 @DBRouterAsync 的用法，写错的方法在启动时报错，而不是第一次调用时
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<String> invalid = new ArrayList<>();
+        for (Class<?> mapper : sqlSessionFactory.getConfiguration().getMapperRegistry().getMappers()) {
+            for (Method method : mapper.getMethods()) {
+                if (!method.isAnnotationPresent(DBRouterAsync.class)) {
+                    continue;
+                }
+                if (CompletableFuture.class != method.getReturnType()) {
+                    invalid.add(method + " must return CompletableFuture<Integer>");
+                }
+                // 切面只拦截 @DBRouter，缺少时调用不会入队
+                if (!method.isAnnotationPresent(DBRouter.class)) {
+                    invalid.add(method + " must also be annotated with @DBRouter");
+                }
+            }
+        }
+        if (!invalid.isEmpty()) {
+            throw new IllegalStateException("invalid @DBRouterAsync methods: " + String.join("; ", invalid));
+        }
+    }
+
+    /**
+     * 定时器：不管攒没攒够，把所有非空队列交给写入线程
+     */
+    private void flushAll() {
+        for (WriteQueue queue : queues.values()) {
+            if (queue.size.get() > 0) {
+                queue.schedule();
+            }
+        }
+    }
+
+    /**
+     * 停止接收新的写入，并把已经在队列中的写完；超时没有写完的 future 以 RejectedExecutionException 结束，调用方不会一直等待
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        ticker.shutdownNow();
+        flushAll();
+        flusher.shutdown();
+        if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("异步写入队列关闭超时，剩余 {} 条未写入", queues.values().stream().mapToInt(queue -> queue.size.get()).sum());
+            flusher.shutdownNow();
+        }
+        for (WriteQueue queue : queues.values()) {
+            queue.rejectPending();
+        }
+    }
+
+    private static final class PendingWrite {
+
+        private final Object param;
+
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        PendingWrite(Object param) {
+            this.param = param;
+        }
+    }
+
+    /**
+     * 单个 (语句, 库, 表) 的写入队列；scheduled 保证同一时刻只有一个写入线程在处理它，写入顺序与提交顺序一致
+     */
+    private final class WriteQueue {
+
+        private final String statement;
+
+        private final String dbKey;
+
+        private final String tbKey;
+
+        private final int batchSize;
+
+        private final ConcurrentLinkedQueue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * 已经占用的容量（包括正在入队的），用于背压
+         */
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        WriteQueue(String statement, String dbKey, String tbKey, int batchSize) {
+            this.statement = statement;
+            this.dbKey = dbKey;
+            this.tbKey = tbKey;
+            this.batchSize = batchSize;
+        }
+
+        CompletableFuture<Integer> offer(Object param) {
+            PendingWrite write = new PendingWrite(param);
+            if (!reserve()) {
+                write.future.completeExceptionally(new RejectedExecutionException(closed ? "async write is closed"
+                        : "async write queue " + statement + "@db" + dbKey + "." + tbKey + " is full"));
+                return write.future;
+            }
+            pending.add(write);
+            // destroy 可能在 reserve 之后已经写完了队列，这时没有写入线程会再处理这一条；
+            // remove 失败说明写入线程已经取走，由它结束 future
+            if (closed && pending.remove(write)) {
+                size.decrementAndGet();
+                write.future.completeExceptionally(new RejectedExecutionException("async write is closed"));
+                return write.future;
+            }
+            if (size.get() >= batchSize) {
+                schedule();
+            }
+            return write.future;
+        }
+
+        /**
+         * 占用一个容量，满了之后阻塞等待写入线程腾出空间，超过 offerTimeoutMillis 放弃
+         */
+        private boolean reserve() {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getOfferTimeoutMillis());
+            while (!closed) {
+                int current = size.get();
+                if (current < config.getQueueCapacity()) {
+                    if (size.compareAndSet(current, current + 1)) {
+                        return true;
+                    }
+                    continue;
+                }
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                schedule();
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+            return false;
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    flusher.execute(this::flush);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void flush() {
+            try {
+                List<PendingWrite> batch = new ArrayList<>(batchSize);
+                do {
+                    batch.clear();
+                    PendingWrite write;
+                    while (batch.size() < batchSize && null != (write = pending.poll())) {
+                        batch.add(write);
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    size.addAndGet(-batch.size());
+                    write(batch);
+                } while (size.get() >= batchSize || (closed && !pending.isEmpty()));
+            } finally {
+                scheduled.set(false);
+            }
+            // 写入期间又攒够了一批
+            if (size.get() >= batchSize) {
+                schedule();
+            }
+        }
+
+        /**
+         * 关闭后仍在队列中的写入不再执行
+         */
+        void rejectPending() {
+            PendingWrite write;
+            while (null != (write = pending.poll())) {
+                size.decrementAndGet();
+                write.future.completeExceptionally(new RejectedExecutionException("async write is closed"));
+            }
+        }
+
+        /**
+         * 一批写入在一个事务中执行，任意一条失败整批回滚；
+         * 如果是某几条数据本身的错误（BatchUpdateException，例如主键冲突），逐条重新写入，只有出错的 future 以异常结束，
+         * 其它错误（例如连接失败）整批的 future 都以该异常结束
+         */
+        private void write(List<PendingWrite> batch) {
+            DBContextHolder.setDBKey(dbKey);
+            DBContextHolder.setTBKey(tbKey);
+            try {
+                int[] counts = transactionTemplate.execute(status -> {
+                    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+                        for (PendingWrite write : batch) {
+                            sqlSession.insert(statement, write.param);
+                        }
+                        List<BatchResult> results = sqlSession.flushStatements();
+                        sqlSession.commit();
+                        return updateCounts(results, batch.size());
+                    }
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).future.complete(counts[i]);
+                }
+            } catch (Throwable e) {
+                if (batch.size() > 1 && isBatchUpdateFailure(e)) {
+                    logger.warn("异步写入整批失败，逐条重新写入 {}@db{}.{} 条数：{} 原因：{}", statement, dbKey, tbKey, batch.size(), e.getMessage());
+                    writeEach(batch);
+                    return;
+                }
+                logger.warn("异步写入失败 {}@db{}.{} 条数：{}", statement, dbKey, tbKey, batch.size(), e);
+                for (PendingWrite write : batch) {
+                    write.future.completeExceptionally(e);
+                }
+            } finally {
+                DBContextHolder.clearDBKey();
+                DBContextHolder.clearTBKey();
+            }
+        }
+
+        /**
+         * 每条单独一个事务，按提交顺序写入
+         */
+        private void writeEach(List<PendingWrite> batch) {
+            for (PendingWrite write : batch) {
+                try {
+                    Integer count = transactionTemplate.execute(status -> {
+                        try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.SIMPLE)) {
+                            int affected = sqlSession.insert(statement, write.param);
+                            sqlSession.commit();
+                            return affected;
+                        }
+                    });
+                    write.future.complete(count);
+                } catch (Throwable e) {
+                    logger.warn("异步写入失败 {}@db{}.{}", statement, dbKey, tbKey, e);
+                    write.future.completeExceptionally(e);
+                }
+            }
+        }
+
+        private boolean isBatchUpdateFailure(Throwable e) {
+            for (Throwable cause = e; null != cause; cause = cause.getCause()) {
+                if (cause instanceof BatchUpdateException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 按提交顺序展开每条语句的影响行数；驱动返回 SUCCESS_NO_INFO 时原样返回
+         */
+        private int[] updateCounts(List<BatchResult> results, int expected) {
+            int[] counts = new int[expected];
+            int i = 0;
+            for (BatchResult result : results) {
+                for (int count : result.getUpdateCounts()) {
+                    if (i < expected) {
+                        counts[i++] = count;
+                    }
+                }
+            }
+            return counts;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package cn.hubu.cache;
+
+import cn.hubu.properties.QueryCacheConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 查询缓存按物理表版本号失效、结果副本以及统计
+ */
+class ShardQueryCacheTest {
+
+    private static final List<String> USER_003 = Collections.singletonList("db01.user_003");
+
+    private final ShardQueryCache cache = new ShardQueryCache(new QueryCacheConfig());
+
+    @Test
+    void hitReturnsACopyOfTheCachedResult() {
+        put("k", USER_003, new ArrayList<>(Arrays.asList("a", "b")));
+
+        @SuppressWarnings("unchecked")
+        List<Object> first = (List<Object>) cache.get("k");
+        assertEquals(Arrays.asList("a", "b"), first);
+        first.add("mutated");
+        assertEquals(Arrays.asList("a", "b"), cache.get("k"));
+    }
+
+    @Test
+    void writeToATableInvalidatesOnlyEntriesReadingIt() {
+        List<String> joined = Arrays.asList("db01.user_003", "db01.dept");
+        put("user", USER_003, Collections.singletonList("u"));
+        put("userWithDept", joined, Collections.singletonList("ud"));
+        put("order", Collections.singletonList("db02.order_001"), Collections.singletonList("o"));
+
+        cache.invalidate(Collections.singletonList("db01.dept"));
+        assertNotNull(cache.get("user"));
+        assertNull(cache.get("userWithDept"), "joined table was written");
+        assertNotNull(cache.get("order"));
+
+        cache.invalidate(USER_003);
+        assertNull(cache.get("user"));
+        assertNotNull(cache.get("order"));
+    }
+
+    @Test
+    void writeDuringQueryMakesTheResultStale() {
+        long[] versions = cache.versions(USER_003);
+        cache.invalidate(USER_003);
+        cache.put("k", USER_003, versions, Collections.singletonList("stale"));
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    void notSerializableResultsAreNotCached() {
+        put("k", USER_003, Collections.singletonList(new Object()));
+        assertNull(cache.get("k"));
+    }
+
+    @Test
+    void readOnlyCacheStoresResultsWithoutSerializing() {
+        QueryCacheConfig config = new QueryCacheConfig();
+        config.setReadOnly(true);
+        ShardQueryCache readOnly = new ShardQueryCache(config);
+        Object row = new Object();
+        readOnly.put("k", USER_003, readOnly.versions(USER_003), Collections.singletonList(row));
+        assertSame(row, readOnly.get("k").get(0));
+    }
+
+    @Test
+    void statsCountHitsAndMisses() {
+        assertNull(cache.get("k"));
+        put("k", USER_003, Collections.singletonList("v"));
+        cache.get("k");
+        cache.get("k");
+        assertEquals(2L, cache.stats().get("hitCount"));
+        assertEquals(1L, cache.stats().get("missCount"));
+
+        cache.invalidateAll();
+        assertNull(cache.get("k"));
+    }
+
+    private void put(String key, List<String> tables, List<?> value) {
+        cache.put(key, tables, cache.versions(tables), value);
+    }
+
+}
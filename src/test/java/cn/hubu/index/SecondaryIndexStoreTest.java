@@ -0,0 +1,100 @@
+package cn.hubu.index;
+
+import cn.hubu.annotation.DBRouterIndex;
+import cn.hubu.properties.DBRouterConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 二级路由索引：映射读写、oneToOne 替换旧映射以及保存失败时整体回滚
+ */
+class SecondaryIndexStoreTest {
+
+    @DBRouterIndex(key = "email", table = "user_email_idx", routerKey = "id", oneToOne = true)
+    @DBRouterIndex(key = "orderNo", table = "order_user_idx")
+    interface UserMapper {
+    }
+
+    private JdbcTemplate jdbcTemplate;
+
+    private SecondaryIndexStore store;
+
+    private DBRouterIndex email;
+
+    private DBRouterIndex orderNo;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // index_key 故意定义得很短，用来制造写入新映射失败
+        jdbcTemplate.execute("create table user_email_idx (index_key varchar(8) primary key, router_key varchar(32) not null)");
+        jdbcTemplate.execute("create table order_user_idx (index_key varchar(32) primary key, router_key varchar(32) not null)");
+        store = new SecondaryIndexStore(dataSource, new DBRouterConfig(2, 4, "userId"), 100, 60000);
+        email = store.findIndex(UserMapper.class, "email");
+        orderNo = store.findIndex(UserMapper.class, "orderNo");
+    }
+
+    @Test
+    void findsIndexesDeclaredOnTheMapper() {
+        assertEquals(2, store.indexes(UserMapper.class).length);
+        assertEquals("id", store.routerKey(email));
+        assertEquals("userId", store.routerKey(orderNo), "falls back to the global router key");
+        assertNull(store.findIndex(UserMapper.class, "phone"));
+        assertEquals(0, store.indexes(Object.class).length);
+    }
+
+    @Test
+    void lookupReadsThroughTheCache() {
+        assertNull(store.lookup(email, "a@x"));
+        store.save(email, "a@x", "7");
+        assertEquals("7", store.lookup(email, "a@x"));
+
+        jdbcTemplate.update("delete from user_email_idx");
+        assertEquals("7", store.lookup(email, "a@x"), "served from the local cache");
+    }
+
+    @Test
+    void oneToOneSaveReplacesTheOldMapping() {
+        store.save(email, "a@x", "7");
+        store.save(email, "b@x", "7");
+
+        assertNull(store.lookup(email, "a@x"));
+        assertEquals("7", store.lookup(email, "b@x"));
+        assertEquals(1, count("user_email_idx"));
+    }
+
+    @Test
+    void oneToManyIndexKeepsEveryMapping() {
+        store.save(orderNo, "o-1", "7");
+        store.save(orderNo, "o-2", "7");
+
+        assertEquals("7", store.lookup(orderNo, "o-1"));
+        assertEquals("7", store.lookup(orderNo, "o-2"));
+        assertEquals(2, count("order_user_idx"));
+    }
+
+    @Test
+    void failedSaveRollsBackTheDeletedMapping() {
+        store.save(email, "a@x", "7");
+
+        assertThrows(RuntimeException.class, () -> store.save(email, "too-long@example.com", "7"));
+        assertEquals("7", jdbcTemplate.queryForObject("select router_key from user_email_idx where index_key = 'a@x'", String.class),
+                "old mapping must survive when the new one cannot be written");
+        assertEquals("7", store.lookup(email, "a@x"));
+        assertNull(store.lookup(email, "too-long@example.com"));
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+}
@@ -0,0 +1,153 @@
+package cn.hubu.resilience;
+
+import cn.hubu.exception.ShardUnavailableException;
+import cn.hubu.properties.ResilienceConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 熔断状态转换、隔离舱以及失败异常分类
+ */
+class ShardResilienceTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private ResilienceConfig config;
+
+    @BeforeEach
+    void setUp() {
+        config = new ResilienceConfig();
+        config.setSlidingWindowSize(10);
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(50);
+        config.setOpenDurationMillis(50);
+        config.setHalfOpenCalls(2);
+        config.setMaxConcurrentCalls(2);
+        config.setMaxWaitMillis(0);
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        ShardResilience resilience = new ShardResilience("db01", config);
+        resilience.onCall(FAST, false);
+        resilience.onCall(FAST, true);
+        resilience.onCall(FAST, false);
+        assertEquals(ShardResilience.State.CLOSED, resilience.getState(), "minimumCalls not reached yet");
+
+        resilience.onCall(FAST, true);
+        assertEquals(ShardResilience.State.OPEN, resilience.getState());
+        assertThrows(ShardUnavailableException.class, resilience::acquire);
+    }
+
+    @Test
+    void halfOpenProbesCloseTheBreaker() throws InterruptedException {
+        ShardResilience resilience = open();
+        Thread.sleep(config.getOpenDurationMillis() + 20);
+
+        int first = resilience.acquire();
+        int second = resilience.acquire();
+        assertEquals(ShardResilience.State.HALF_OPEN, resilience.getState());
+        assertNotEquals(ShardResilience.NO_PROBE, first);
+        assertThrows(ShardUnavailableException.class, resilience::acquire, "probe calls exhausted");
+
+        resilience.settleProbe(first, true);
+        resilience.release();
+        assertEquals(ShardResilience.State.HALF_OPEN, resilience.getState());
+        resilience.settleProbe(second, true);
+        resilience.release();
+        assertEquals(ShardResilience.State.CLOSED, resilience.getState());
+        assertEquals(ShardResilience.NO_PROBE, resilience.acquire());
+        resilience.release();
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() throws InterruptedException {
+        ShardResilience resilience = open();
+        Thread.sleep(config.getOpenDurationMillis() + 20);
+
+        int probe = resilience.acquire();
+        resilience.settleProbe(probe, false);
+        resilience.release();
+        assertEquals(ShardResilience.State.OPEN, resilience.getState());
+        assertThrows(ShardUnavailableException.class, resilience::acquire);
+    }
+
+    @Test
+    void probeFromPreviousHalfOpenRoundIsIgnored() throws InterruptedException {
+        ShardResilience resilience = open();
+        Thread.sleep(config.getOpenDurationMillis() + 20);
+        int stale = resilience.acquire();
+        int other = resilience.acquire();
+        resilience.settleProbe(other, false);
+        resilience.release();
+        Thread.sleep(config.getOpenDurationMillis() + 20);
+
+        int probe = resilience.acquire();
+        resilience.settleProbe(stale, true);
+        resilience.release();
+        resilience.settleProbe(probe, true);
+        resilience.release();
+        assertEquals(ShardResilience.State.HALF_OPEN, resilience.getState(), "the stale probe must not count for the new round");
+    }
+
+    @Test
+    void bulkheadRejectsCallsOverTheLimit() {
+        ShardResilience resilience = new ShardResilience("db01", config);
+        resilience.acquire();
+        resilience.acquire();
+        assertEquals(0, resilience.getAvailablePermits());
+        assertThrows(ShardUnavailableException.class, resilience::acquire);
+
+        resilience.release();
+        resilience.acquire();
+        resilience.release();
+        resilience.release();
+        assertEquals(2, resilience.getAvailablePermits());
+    }
+
+    @Test
+    void onlyConnectionClassErrorsAreFailures() {
+        ShardResilience resilience = new ShardResilience("db01", config);
+        assertTrue(resilience.isFailure(new SQLTransientConnectionException("pool timeout")));
+        assertTrue(resilience.isFailure(new SQLException("communications link failure", "08S01")));
+        assertTrue(resilience.isFailure(new RuntimeException(new SQLException("wrapped", "08001"))));
+        assertFalse(resilience.isFailure(new SQLIntegrityConstraintViolationException("duplicate key", "23000")));
+        assertFalse(resilience.isFailure(new SQLException("syntax error", "42000")));
+        assertFalse(resilience.isFailure(new IllegalArgumentException()));
+    }
+
+    @Test
+    void failureTypesAreConfigurable() {
+        config.getFailureExceptions().add(SQLIntegrityConstraintViolationException.class.getName());
+        config.getFailureExceptions().add("com.example.Missing");
+        ShardResilience resilience = new ShardResilience("db01", config);
+        assertTrue(resilience.isFailure(new SQLIntegrityConstraintViolationException("duplicate key", "23000")));
+    }
+
+    @Test
+    void adaptiveTimeoutStaysWithinBounds() {
+        config.setMinTimeoutMillis(2000);
+        config.setMaxTimeoutMillis(5000);
+        ShardResilience resilience = new ShardResilience("db01", config);
+        assertEquals(5, resilience.queryTimeoutSeconds(), "max timeout until enough samples");
+    }
+
+    private ShardResilience open() {
+        ShardResilience resilience = new ShardResilience("db01", config);
+        for (int i = 0; i < config.getMinimumCalls(); i++) {
+            resilience.onCall(FAST, true);
+        }
+        assertEquals(ShardResilience.State.OPEN, resilience.getState());
+        return resilience;
+    }
+
+}
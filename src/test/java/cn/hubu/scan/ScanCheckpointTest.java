@@ -0,0 +1,94 @@
+package cn.hubu.scan;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 扫描断点保存、读取后 lastKey 的值和类型保持不变
+ */
+class ScanCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsKeyTypes() throws IOException {
+        ScanCheckpoint checkpoint = new ScanCheckpoint();
+        checkpoint.setLastKey("db01.000", 42L);
+        checkpoint.setLastKey("db01.001", 7);
+        checkpoint.setLastKey("db01.002", "007");
+        checkpoint.setLastKey("db01.003", "u-42");
+        checkpoint.setLastKey("db02.000", new BigDecimal("1.50"));
+        checkpoint.setLastKey("db02.001", UUID.randomUUID());
+        checkpoint.setLastKey("db02.002", LocalDateTime.of(2026, 10, 19, 8, 30, 15, 123456789));
+        checkpoint.setLastKey("db02.003", Timestamp.valueOf("2026-10-19 08:30:15.5"));
+        checkpoint.complete("db02.004");
+
+        Path file = dir.resolve("export.checkpoint");
+        checkpoint.save(file);
+        ScanCheckpoint loaded = ScanCheckpoint.load(file);
+
+        assertEquals(checkpoint.getLastKeys(), loaded.getLastKeys());
+        checkpoint.getLastKeys().forEach((slot, key) -> assertEquals(key.getClass(), loaded.getLastKey(slot).getClass(), slot));
+        assertEquals(new HashSet<>(Arrays.asList("db02.004")), loaded.getCompleted());
+        assertTrue(loaded.isCompleted("db02.004"));
+        assertFalse(Files.exists(dir.resolve("export.checkpoint.tmp")));
+    }
+
+    @Test
+    void numericLookingStringKeyStaysAString() throws IOException {
+        ScanCheckpoint checkpoint = new ScanCheckpoint();
+        checkpoint.setLastKey("db01.000", "00123");
+        Path file = dir.resolve("cp");
+        checkpoint.save(file);
+        assertEquals("00123", ScanCheckpoint.load(file).getLastKey("db01.000"));
+    }
+
+    @Test
+    void keyWithoutRecordedTypeIsBoundUnchanged() throws IOException {
+        Path file = dir.resolve("cp");
+        Files.write(file, "lastKey.db01.000=123\n".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals("123", ScanCheckpoint.load(file).getLastKey("db01.000"));
+    }
+
+    @Test
+    void saveOverwritesThePreviousCheckpoint() throws IOException {
+        Path file = dir.resolve("cp");
+        ScanCheckpoint checkpoint = new ScanCheckpoint();
+        checkpoint.setLastKey("db01.000", 1L);
+        checkpoint.save(file);
+        checkpoint.setLastKey("db01.000", 2L);
+        checkpoint.save(file);
+        assertEquals(2L, ScanCheckpoint.load(file).getLastKey("db01.000"));
+    }
+
+    @Test
+    void missingFileIsAnEmptyCheckpoint() throws IOException {
+        ScanCheckpoint checkpoint = ScanCheckpoint.load(dir.resolve("missing"));
+        assertTrue(checkpoint.getLastKeys().isEmpty());
+        assertTrue(checkpoint.getCompleted().isEmpty());
+    }
+
+    @Test
+    void unrestorableTypeFailsInsteadOfGuessing() throws IOException {
+        Path file = dir.resolve("cp");
+        Files.write(file, ("lastKey.db01.000=x\nkeyType.db01.000=" + Object.class.getName() + "\n").getBytes(StandardCharsets.ISO_8859_1));
+        assertThrows(IOException.class, () -> ScanCheckpoint.load(file));
+    }
+
+}
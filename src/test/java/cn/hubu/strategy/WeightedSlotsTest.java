@@ -0,0 +1,123 @@
+package cn.hubu.strategy;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.properties.DBRouterConfig;
+import cn.hubu.strategy.impl.DBRouterStrategyHashCode;
+import cn.hubu.strategy.impl.DBRouterStrategyJump;
+import cn.hubu.strategy.impl.DBRouterStrategyMod;
+import cn.hubu.strategy.impl.DBRouterStrategyMurmur;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 权重约分、槽位表，以及配置权重后各策略的数据分布
+ */
+class WeightedSlotsTest {
+
+    @Test
+    void withoutWeightsEveryDatabaseHasOneSlot() {
+        WeightedSlots slots = WeightedSlots.of(3, null);
+        assertFalse(slots.isWeighted());
+        assertEquals(3, slots.size());
+        for (int slot = 0; slot < 3; slot++) {
+            assertEquals(slot + 1, slots.dbIdx(slot));
+        }
+    }
+
+    @Test
+    void weightsAreReducedByTheirGreatestCommonDivisor() {
+        WeightedSlots slots = WeightedSlots.of(2, weights(2, 6));
+        assertTrue(slots.isWeighted());
+        assertEquals(4, slots.size());
+        assertArrayEquals(new int[]{1, 2, 2, 2}, new int[]{slots.dbIdx(0), slots.dbIdx(1), slots.dbIdx(2), slots.dbIdx(3)});
+        assertEquals(0.25, slots.expectedShares().get("db01"), 1e-9);
+        assertEquals(0.75, slots.expectedShares().get("db02"), 1e-9);
+    }
+
+    @Test
+    void equalWeightsAreTheSameAsNoWeights() {
+        WeightedSlots slots = WeightedSlots.of(3, weights(4, 4, 4));
+        assertFalse(slots.isWeighted());
+        assertEquals(3, slots.size());
+    }
+
+    @Test
+    void missingWeightDefaultsToOneAndZeroWeightGetsNoSlot() {
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("db02", 0);
+        weights.put("db03", 2);
+        WeightedSlots slots = WeightedSlots.of(3, weights);
+        assertEquals(3, slots.size());
+        assertArrayEquals(new int[]{1, 3, 3}, new int[]{slots.dbIdx(0), slots.dbIdx(1), slots.dbIdx(2)});
+        assertEquals(0D, slots.expectedShares().get("db02"));
+    }
+
+    @Test
+    void invalidWeightsAreRejected() {
+        assertThrows(IllegalStateException.class, () -> WeightedSlots.of(2, weights(1, -1)));
+        assertThrows(IllegalStateException.class, () -> WeightedSlots.of(2, weights(0, 0)));
+        assertThrows(IllegalStateException.class, () -> new DBRouterConfig(2, 4, "id").setWeights(weights(0, 0)));
+    }
+
+    @Test
+    void equalWeightsRouteExactlyLikeNoWeights() {
+        DBRouterConfig plain = new DBRouterConfig(4, 8, "id");
+        DBRouterConfig equal = new DBRouterConfig(4, 8, "id");
+        equal.setWeights(weights(3, 3, 3, 3));
+        IDBRouterStrategy[][] pairs = {
+                {new DBRouterStrategyMod(plain), new DBRouterStrategyMod(equal)},
+                {new DBRouterStrategyHashCode(plain), new DBRouterStrategyHashCode(equal)},
+                {new DBRouterStrategyMurmur(plain), new DBRouterStrategyMurmur(equal)},
+                {new DBRouterStrategyJump(plain), new DBRouterStrategyJump(equal)},
+        };
+        for (IDBRouterStrategy[] pair : pairs) {
+            for (long key = 0; key < 5000; key++) {
+                assertEquals(route(pair[0], key), route(pair[1], key), pair[0].getClass().getSimpleName() + " key " + key);
+            }
+        }
+    }
+
+    @Test
+    void weightedStrategiesFollowTheConfiguredShares() {
+        DBRouterConfig config = new DBRouterConfig(3, 4, "id");
+        config.setWeights(weights(1, 2, 5));
+        Map<String, Double> expected = config.getWeightedSlots().expectedShares();
+        int keys = 80000;
+        for (IDBRouterStrategy strategy : new IDBRouterStrategy[]{new DBRouterStrategyMod(config), new DBRouterStrategyHashCode(config),
+                new DBRouterStrategyMurmur(config), new DBRouterStrategyJump(config)}) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (long key = 0; key < keys; key++) {
+                counts.merge("db" + route(strategy, key).substring(0, 2), 1, Integer::sum);
+            }
+            for (Map.Entry<String, Double> share : expected.entrySet()) {
+                double actual = counts.getOrDefault(share.getKey(), 0) / (double) keys;
+                assertEquals(share.getValue(), actual, 0.02, strategy.getClass().getSimpleName() + " " + share.getKey());
+            }
+        }
+    }
+
+    private static String route(IDBRouterStrategy strategy, long key) {
+        try {
+            strategy.doRouter(Long.toString(key * 7919));
+            return DBContextHolder.getDBKey() + "." + DBContextHolder.getTBKey();
+        } finally {
+            strategy.clear();
+        }
+    }
+
+    private static Map<String, Integer> weights(int... values) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            weights.put(String.format("db%02d", i + 1), values[i]);
+        }
+        return weights;
+    }
+
+}
@@ -0,0 +1,195 @@
+package cn.hubu.topology;
+
+import cn.hubu.DBContextHolder;
+import cn.hubu.dynamic.DynamicDataSource;
+import cn.hubu.properties.DBRouterConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 拓扑整体替换、调用期间固定快照，以及旧连接池在调用结束后回收
+ */
+class ShardingTopologyRefresherTest {
+
+    private final List<DataSource> created = new ArrayList<>();
+
+    private DynamicDataSource dynamicDataSource;
+
+    private DBRouterConfig dbRouterConfig;
+
+    private ShardingTopologyRefresher refresher;
+
+    @BeforeEach
+    void setUp() {
+        MockEnvironment environment = environment("db01,db02", 2);
+        dynamicDataSource = new DynamicDataSource();
+        dynamicDataSource.setTopology(track(ShardingTopologyFactory.fromEnvironment(environment, null)));
+        dbRouterConfig = new DBRouterConfig(2, 4, "id");
+        dbRouterConfig.setDynamicDataSource(dynamicDataSource);
+        refresher = new ShardingTopologyRefresher(dynamicDataSource, dbRouterConfig, environment, null, 5000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        DBContextHolder.clearTopology();
+        refresher.destroy();
+        for (DataSource dataSource : created) {
+            if (dataSource instanceof Closeable) {
+                ((Closeable) dataSource).close();
+            }
+        }
+    }
+
+    @Test
+    void unchangedConfigurationKeepsTheTopology() {
+        ShardingTopology current = dynamicDataSource.getTopology();
+        assertSame(current, refresher.refresh(environment("db01,db02", 2)));
+    }
+
+    @Test
+    void refreshPublishesTheNewCountsAndReusesUnchangedPools() {
+        ShardingTopology previous = dynamicDataSource.getTopology();
+        ShardingTopology next = track(refresher.refresh(environment("db01,db02,db03", 3)));
+
+        assertSame(next, dynamicDataSource.getTopology());
+        assertEquals(3, dbRouterConfig.getDbCount());
+        assertSame(previous.getDataSources().get("db01"), next.getDataSources().get("db01"));
+        assertSame(previous.getDataSources().get("db02"), next.getDataSources().get("db02"));
+        assertSame(previous.getDefaultDataSource(), next.getDefaultDataSource());
+        assertNotNull(next.getDataSources().get("db03"));
+    }
+
+    @Test
+    void pinnedCallKeepsItsSnapshotUntilItFinishes() {
+        ShardingTopology pinned = dynamicDataSource.pinTopology();
+        DBContextHolder.setTopology(pinned);
+
+        track(refresher.refresh(environment("db01,db02,db03", 3)));
+        assertEquals(2, dbRouterConfig.getDbCount(), "in-flight call still sees the old topology");
+
+        DBContextHolder.clearTopology();
+        pinned.unpin();
+        assertEquals(3, dbRouterConfig.getDbCount());
+    }
+
+    @Test
+    void retiredPoolIsClosedOnlyAfterPinsAreReleased() throws InterruptedException {
+        ShardingTopology previous = dynamicDataSource.getTopology();
+        HikariDataSource db02 = (HikariDataSource) previous.getDataSources().get("db02");
+        previous.pin();
+
+        MockEnvironment changed = environment("db01,db02", 2);
+        changed.setProperty("db-sharding.jdbc.datasource.db02.url", url("db02-moved"));
+        ShardingTopology next = track(refresher.refresh(changed));
+        assertNotSame(db02, next.getDataSources().get("db02"));
+
+        Thread.sleep(300);
+        assertFalse(db02.isClosed(), "old pool must stay open while a call is pinned to it");
+
+        previous.unpin();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (!db02.isClosed() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(db02.isClosed());
+        assertFalse(((HikariDataSource) next.getDataSources().get("db01")).isClosed(), "reused pool stays open");
+    }
+
+    @Test
+    void concurrentReadersNeverSeeAPartialOrOlderTopology() throws InterruptedException {
+        int readers = 4;
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(readers);
+        List<ShardingTopology> published = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < readers; i++) {
+            new Thread(() -> {
+                long lastVersion = 0;
+                try {
+                    while (running.get()) {
+                        ShardingTopology topology = dynamicDataSource.pinTopology();
+                        try {
+                            if (topology.getDataSources().size() != topology.getDbCount()) {
+                                failure.compareAndSet(null, "partial topology " + topology);
+                            }
+                            if (topology.getVersion() < lastVersion) {
+                                failure.compareAndSet(null, "went back from " + lastVersion + " to " + topology);
+                            }
+                            lastVersion = topology.getVersion();
+                        } finally {
+                            topology.unpin();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        for (int i = 0; i < 2000; i++) {
+            ShardingTopology next = stub(1 + i % 8);
+            published.add(dynamicDataSource.publish(next));
+        }
+        running.set(false);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get(), failure.get());
+        for (ShardingTopology topology : published) {
+            assertEquals(0, topology.getPins());
+        }
+    }
+
+    private ShardingTopology stub(int dbCount) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (int i = 1; i <= dbCount; i++) {
+            dataSources.put(String.format("db%02d", i), new DriverManagerDataSource());
+        }
+        return new ShardingTopology(dbCount, 4, dataSources, Collections.emptyMap(), new DriverManagerDataSource(), Collections.emptyMap());
+    }
+
+    private ShardingTopology track(ShardingTopology topology) {
+        created.addAll(topology.getDataSources().values());
+        created.add(topology.getDefaultDataSource());
+        return topology;
+    }
+
+    private static MockEnvironment environment(String list, int dbCount) {
+        MockEnvironment environment = new MockEnvironment();
+        String prefix = "db-sharding.jdbc.datasource.";
+        environment.setProperty(prefix + "dbCount", String.valueOf(dbCount));
+        environment.setProperty(prefix + "tbCount", "4");
+        environment.setProperty(prefix + "list", list);
+        environment.setProperty(prefix + "defaultDb", "db00");
+        for (String db : ("db00," + list).split(",")) {
+            environment.setProperty(prefix + db + ".type", HikariDataSource.class.getName());
+            environment.setProperty(prefix + db + ".url", url(db));
+            environment.setProperty(prefix + db + ".username", "sa");
+            environment.setProperty(prefix + db + ".password", "");
+            environment.setProperty(prefix + db + ".minimum-idle", "0");
+        }
+        return environment;
+    }
+
+    private static String url(String db) {
+        return "jdbc:h2:mem:topology_" + db + ";DB_CLOSE_DELAY=-1";
+    }
+
+}
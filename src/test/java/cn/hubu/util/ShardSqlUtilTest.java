@@ -0,0 +1,50 @@
+package cn.hubu.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 逻辑表名解析与物理表替换
+ */
+class ShardSqlUtilTest {
+
+    @Test
+    void tableNamesFromFromIntoUpdate() {
+        assertEquals(Collections.singletonList("user"), ShardSqlUtil.tableNames("select * from USER where id = ?"));
+        assertEquals(Collections.singletonList("user"), ShardSqlUtil.tableNames("insert into user (id) values (?)"));
+        assertEquals(Collections.singletonList("user"), ShardSqlUtil.tableNames("update user set name = ? where id = ?"));
+    }
+
+    @Test
+    void joinedTablesAreReportedSeparately() {
+        String sql = "select u.*, d.name from user u left join dept d on u.dept_id = d.id inner join Role r on r.id = u.role_id";
+        assertEquals(Collections.singletonList("user"), ShardSqlUtil.tableNames(sql));
+        assertEquals(Arrays.asList("dept", "role"), ShardSqlUtil.joinedTableNames(sql));
+    }
+
+    @Test
+    void commaSeparatedFromList() {
+        assertEquals(Arrays.asList("dept", "role"), ShardSqlUtil.joinedTableNames("select * from user u, dept as d, role where u.dept_id = d.id"));
+        assertEquals(Collections.singletonList("dept"), ShardSqlUtil.joinedTableNames("select * from user,dept where user.dept_id = dept.id"));
+    }
+
+    @Test
+    void noJoinedTablesForSingleTableStatements() {
+        assertTrue(ShardSqlUtil.joinedTableNames("select id, name from user where id = ?").isEmpty());
+        assertTrue(ShardSqlUtil.joinedTableNames("insert into user (id, name) values (?, ?)").isEmpty());
+        assertTrue(ShardSqlUtil.joinedTableNames("select * from user u join user x on u.id = x.parent_id").isEmpty());
+    }
+
+    @Test
+    void replaceTableRenamesTheLogicalTable() {
+        assertEquals("select * from user_003 where id = ?", ShardSqlUtil.replaceTable("select * from user where id = ?", "003"));
+        assertEquals("select 1", ShardSqlUtil.replaceTable("select 1", "003"));
+    }
+
+}
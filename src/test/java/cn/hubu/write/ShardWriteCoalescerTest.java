@@ -0,0 +1,199 @@
+package cn.hubu.write;
+
+import cn.hubu.annotation.DBRouter;
+import cn.hubu.annotation.DBRouterAsync;
+import cn.hubu.properties.AsyncWriteConfig;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author xu289
+ * @date 2026-10-19
+ * @description 合并写入：批量写入、关闭时写完队列中的数据、整批失败后逐条重试
+ */
+class ShardWriteCoalescerTest {
+
+    public interface RowMapper {
+
+        @DBRouter(key = "id")
+        @DBRouterAsync
+        @Insert("insert into t_row (id, name) values (#{id}, #{name})")
+        CompletableFuture<Integer> insert(Row row);
+
+    }
+
+    public static class Row {
+
+        private final long id;
+
+        private final String name;
+
+        Row(long id) {
+            this.id = id;
+            this.name = "row-" + id;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final Method INSERT;
+
+    static {
+        try {
+            INSERT = RowMapper.class.getMethod("insert", Row.class);
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private JdbcTemplate jdbcTemplate;
+
+    private SqlSessionFactory sqlSessionFactory;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ShardWriteCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table t_row (id bigint primary key, name varchar(32))");
+        Configuration configuration = new Configuration(new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addMapper(RowMapper.class);
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (null != coalescer) {
+            coalescer.destroy();
+        }
+    }
+
+    @Test
+    void writesInBatchesAndCompletesEveryFuture() throws Exception {
+        AsyncWriteConfig config = new AsyncWriteConfig();
+        config.setBatchSize(5);
+        coalescer = new ShardWriteCoalescer(sqlSessionFactory, transactionTemplate, config);
+
+        List<CompletableFuture<Integer>> futures = submit(1, 12);
+        for (CompletableFuture<Integer> future : futures) {
+            assertEquals(1, future.get(5, TimeUnit.SECONDS).intValue());
+        }
+        assertEquals(12, count());
+    }
+
+    @Test
+    void destroyDrainsQueuedWritesAndRejectsNewOnes() throws Exception {
+        AsyncWriteConfig config = new AsyncWriteConfig();
+        // 既攒不满一批，定时器也不会到期，只有关闭时才会写入
+        config.setBatchSize(1000);
+        config.setFlushMillis(TimeUnit.HOURS.toMillis(1));
+        coalescer = new ShardWriteCoalescer(sqlSessionFactory, transactionTemplate, config);
+
+        List<CompletableFuture<Integer>> futures = submit(1, 50);
+        assertEquals(0, count());
+        assertFalse(futures.get(0).isDone());
+
+        coalescer.destroy();
+        for (CompletableFuture<Integer> future : futures) {
+            assertTrue(future.isDone());
+            assertEquals(1, future.get().intValue());
+        }
+        assertEquals(50, count());
+
+        CompletableFuture<Integer> late = coalescer.submit(INSERT, new Object[]{new Row(51)}, "01", "000");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        coalescer = null;
+    }
+
+    @Test
+    void failedBatchFallsBackToPerRowWrites() throws Exception {
+        jdbcTemplate.update("insert into t_row (id, name) values (3, 'existing')");
+        AsyncWriteConfig config = new AsyncWriteConfig();
+        config.setBatchSize(5);
+        config.setFlushMillis(TimeUnit.HOURS.toMillis(1));
+        coalescer = new ShardWriteCoalescer(sqlSessionFactory, transactionTemplate, config);
+
+        List<CompletableFuture<Integer>> futures = submit(1, 5);
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<Integer> future = futures.get(i);
+            if (i + 1 == 3) {
+                assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS), "duplicate key fails only its own future");
+            } else {
+                assertEquals(1, future.get(5, TimeUnit.SECONDS).intValue());
+            }
+        }
+        assertEquals(5, count());
+        assertEquals("existing", jdbcTemplate.queryForObject("select name from t_row where id = 3", String.class));
+    }
+
+    @Test
+    void rejectsMisdeclaredAsyncMethods() {
+        coalescer = new ShardWriteCoalescer(sqlSessionFactory, transactionTemplate, new AsyncWriteConfig());
+        coalescer.afterSingletonsInstantiated();
+
+        Configuration configuration = new Configuration(sqlSessionFactory.getConfiguration().getEnvironment());
+        configuration.addMapper(BrokenMapper.class);
+        ShardWriteCoalescer broken = new ShardWriteCoalescer(new SqlSessionFactoryBuilder().build(configuration), transactionTemplate, new AsyncWriteConfig());
+        try {
+            IllegalStateException e = assertThrows(IllegalStateException.class, broken::afterSingletonsInstantiated);
+            assertTrue(e.getMessage().contains("must return CompletableFuture"));
+            assertTrue(e.getMessage().contains("must also be annotated with @DBRouter"));
+        } finally {
+            assertDoesNotThrow(broken::destroy);
+        }
+    }
+
+    public interface BrokenMapper {
+
+        @DBRouterAsync
+        @Insert("insert into t_row (id, name) values (#{id}, #{name})")
+        int insert(Row row);
+
+    }
+
+    private List<CompletableFuture<Integer>> submit(long from, long to) {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (long id = from; id <= to; id++) {
+            futures.add(coalescer.submit(INSERT, new Object[]{new Row(id)}, "01", "000"));
+        }
+        return futures;
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("select count(*) from t_row", Integer.class);
+    }
+
+}